@@ -0,0 +1,30 @@
+import java.util.SplittableRandom;
+
+// a board generator that times each board it lays out
+abstract class ABoardGenerator implements IBoardGenerator {
+  long lastNanos;
+
+  // replaces the wires of the given board with a spanning tree of its cells
+  public void generate(PackedBoard board, SplittableRandom rand) {
+    long start = System.nanoTime();
+    for (int i = 0; i < board.size(); i++) {
+      board.set(i, PackedBoard.WIRES, false);
+    }
+    this.layout(board, rand);
+    this.lastNanos = System.nanoTime() - start;
+  }
+
+  // how long the last call to generate took, in nanoseconds
+  public long lastNanos() {
+    return this.lastNanos;
+  }
+
+  // adds the wires of a spanning tree to the given wireless board
+  abstract void layout(PackedBoard board, SplittableRandom rand);
+
+  // adds a wire between the cell at the given index and its neighbor in the given direction
+  static void join(PackedBoard board, int i, int dir) {
+    board.set(i, dir, true);
+    board.set(board.neighbor(i, dir), PackedBoard.opposite(dir), true);
+  }
+}
@@ -0,0 +1,100 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// saves a game to a file every few seconds of play; the game is copied to bytes
+// between ticks, which takes a pass over its cells, and the bytes are written to the
+// file on a thread of their own, so the game never waits on the disk
+class Autosave {
+  File file;
+  // how many seconds apart to save
+  int every;
+  ExecutorService writer;
+  // the last write handed to the writer, until it is known how it went
+  Future<?> pending;
+  // how many saves were written, how many failed to be, and how many were skipped
+  // because the last one was still being written, and how long the game spent on
+  // the last one
+  long saved;
+  long failed;
+  long skipped;
+  long nanos;
+  // why the last save that failed did, or null if none has
+  IOException lastError;
+
+  Autosave(File file, int every) {
+    this.file = file;
+    this.every = every;
+    this.writer = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "autosave");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  // copies the given game and hands the copy to the writer, unless the last one is
+  // still being written
+  void save(GameEngine game) {
+    if (this.collect()) {
+      this.skipped = this.skipped + 1;
+      return;
+    }
+    long start = System.nanoTime();
+    byte[] bytes = Snapshot.save(game);
+    this.pending = this.writer.submit(() -> {
+      Snapshot.write(bytes, this.file);
+      return null;
+    });
+    this.nanos = System.nanoTime() - start;
+  }
+
+  // counts the last write, once it is done, as written or as failed; is it still
+  // being written
+  boolean collect() {
+    if (this.pending == null) {
+      return false;
+    }
+    if (!this.pending.isDone()) {
+      return true;
+    }
+    try {
+      this.pending.get();
+      this.saved = this.saved + 1;
+    }
+    catch (ExecutionException e) {
+      this.failed = this.failed + 1;
+      this.lastError = e.getCause() instanceof IOException ? (IOException) e.getCause()
+          : new IOException(e.getCause());
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return true;
+    }
+    this.pending = null;
+    return false;
+  }
+
+  // waits for the last save to be written, and throws why it was not if it failed
+  void await() throws IOException {
+    long before = this.failed;
+    try {
+      if (this.pending != null) {
+        this.pending.get();
+      }
+    }
+    catch (ExecutionException e) {
+      // counted as it is collected
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    this.collect();
+    if (this.failed > before) {
+      throw this.lastError;
+    }
+  }
+}
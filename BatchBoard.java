@@ -0,0 +1,19 @@
+// one board on its way through the batch generator's pipeline
+class BatchBoard {
+  // its position in the batch, and the seed it was laid out from
+  long index;
+  long seed;
+  // the board, when read back, and the smallest radius it can be won with
+  PackedBoard board;
+  int radius;
+  // the board as written, and whether it passed its check
+  byte[] bytes;
+  boolean verified;
+  // what went wrong laying it out, if anything
+  RuntimeException failure;
+
+  BatchBoard(long index, long seed) {
+    this.index = index;
+    this.seed = seed;
+  }
+}
@@ -0,0 +1,380 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import tester.*;
+
+// lays out many boards without javalib and streams them to a file in order through
+// a bounded pipeline: one thread hands out the sizes and seeds, the pool lays out,
+// scrambles, checks and encodes each board, and one writer puts them back in order
+// and writes them; no more than a fixed number of boards are ever between being
+// handed out and being written, however many are asked for
+//
+// usage: java BatchGenerator count WxH[,WxH...] seed file [solved|scramble|unique]
+//        [generator] [threads]
+class BatchGenerator {
+  // the first bytes of every file of boards, "LEMB", and the version of the format,
+  // which since version 2 keeps the radius of each board
+  static final int MAGIC = 0x4c454d42;
+  static final int VERSION = 2;
+  // how far each board is taken before it is written
+  static final int SOLVED = 0;
+  static final int SCRAMBLE = 1;
+  static final int UNIQUE = 2;
+  static final String USAGE = "usage: java BatchGenerator count WxH[,WxH...] seed file"
+      + " [solved|scramble|unique] [generator] [threads]";
+
+  ForkJoinPool pool;
+  // the name of the generator that lays out each board, and one of it for each
+  // thread of the pool, since a generator keeps its work arrays from board to board
+  String generator;
+  ThreadLocal<IBoardGenerator> generators;
+  int mode;
+  // the sizes to lay out, taken in turn
+  int[] widths;
+  int[] heights;
+  // the most boards between being handed out and being written
+  int capacity;
+  // how many boards the last run wrote, how many it dropped because they failed
+  // their check, how many bytes it wrote, and how long it took
+  long written;
+  long dropped;
+  long bytes;
+  long nanos;
+
+  BatchGenerator(ForkJoinPool pool, String generator, int mode, int[] widths, int[] heights) {
+    if (generator(generator) == null) {
+      throw new IllegalArgumentException("no such generator: " + generator);
+    }
+    this.pool = pool;
+    this.generator = generator;
+    this.generators = ThreadLocal.withInitial(() -> generator(generator));
+    this.mode = mode;
+    this.widths = widths;
+    this.heights = heights;
+    this.capacity = 8 * pool.getParallelism();
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int mode = args.length > 4 ? mode(args[4]) : SCRAMBLE;
+    String generator = args.length > 5 ? args[5] : "kruskal";
+    String[] sizes = args.length > 1 ? args[1].split(",") : new String[0];
+    int[] widths = new int[sizes.length];
+    int[] heights = new int[sizes.length];
+    long count;
+    long seed;
+    int threads;
+    try {
+      if (args.length < 4 || args.length > 7 || mode < 0 || generator(generator) == null) {
+        throw new IllegalArgumentException();
+      }
+      count = Long.parseLong(args[0]);
+      for (int k = 0; k < sizes.length; k++) {
+        String[] size = sizes[k].split("x");
+        if (size.length != 2) {
+          throw new IllegalArgumentException();
+        }
+        widths[k] = Integer.parseInt(size[0]);
+        heights[k] = Integer.parseInt(size[1]);
+        if (widths[k] < 1 || heights[k] < 1) {
+          throw new IllegalArgumentException();
+        }
+      }
+      seed = Long.parseLong(args[2]);
+      threads = args.length > 6 ? Integer.parseInt(args[6])
+          : Runtime.getRuntime().availableProcessors();
+      if (count < 0 || threads < 1) {
+        throw new IllegalArgumentException();
+      }
+    }
+    catch (IllegalArgumentException e) {
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    BatchGenerator batch = new BatchGenerator(pool, generator, mode, widths, heights);
+    try (OutputStream out = new FileOutputStream(args[3])) {
+      batch.run(count, seed, out);
+    }
+    pool.shutdown();
+    double seconds = batch.nanos / 1e9;
+    System.out.printf("%d boards (%d dropped) in %.2f s with %d threads: %.0f boards/s,"
+        + " %.1f MB/s%n", batch.written, batch.dropped, seconds, threads,
+        batch.written / seconds, batch.bytes / seconds / 1e6);
+  }
+
+  // the mode with the given name, or -1 if there is none
+  static int mode(String name) {
+    String[] names = {"solved", "scramble", "unique"};
+    for (int m = 0; m < names.length; m++) {
+      if (names[m].equals(name)) {
+        return m;
+      }
+    }
+    return -1;
+  }
+
+  // a new generator with the given name, or null if there is none
+  static IBoardGenerator generator(String name) {
+    IBoardGenerator[] all = {new KruskalGenerator(), new PrimGenerator(),
+        new WilsonGenerator(), new DepthFirstGenerator(), new DivisionGenerator()};
+    for (IBoardGenerator g : all) {
+      if (g.name().equals(name)) {
+        return g;
+      }
+    }
+    return null;
+  }
+
+  // lays out the given number of boards, the board at each position from the next
+  // seed of a stream started from the given one, and writes them to the given
+  // stream in order after a header, ending with an empty board
+  void run(long count, long seed, OutputStream out) throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    this.written = 0;
+    this.dropped = 0;
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    // counted here since the stream's own count stops at the largest int
+    this.bytes = 8;
+
+    // a board is handed out only once there is room for it, and room is made only
+    // when a board is written, so the finished boards waiting for the writer, and the
+    // ring that puts them back in order, never need more than the capacity
+    Semaphore room = new Semaphore(this.capacity);
+    ArrayBlockingQueue<BatchBoard> done = new ArrayBlockingQueue<BatchBoard>(this.capacity);
+    BatchBoard[] ring = new BatchBoard[this.capacity];
+    Thread producer = new Thread(() -> {
+      SplittableRandom seeds = new SplittableRandom(seed);
+      for (long k = 0; k < count; k++) {
+        room.acquireUninterruptibly();
+        long index = k;
+        long boardSeed = seeds.nextLong();
+        int width = this.widths[(int) (k % this.widths.length)];
+        int height = this.heights[(int) (k % this.heights.length)];
+        this.pool.execute(() -> done.add(this.make(index, width, height, boardSeed)));
+      }
+    });
+    producer.setDaemon(true);
+    producer.start();
+
+    for (long next = 0; next < count; ) {
+      BatchBoard b = done.take();
+      if (b.failure != null) {
+        throw b.failure;
+      }
+      ring[(int) (b.index % this.capacity)] = b;
+      for (BatchBoard w = ring[(int) (next % this.capacity)]; w != null && w.index == next;
+          w = ring[(int) (next % this.capacity)]) {
+        ring[(int) (next % this.capacity)] = null;
+        if (w.verified) {
+          data.write(w.bytes);
+          this.bytes = this.bytes + w.bytes.length;
+          this.written = this.written + 1;
+        }
+        else {
+          this.dropped = this.dropped + 1;
+        }
+        next = next + 1;
+        room.release();
+      }
+    }
+    data.writeShort(0);
+    data.writeShort(0);
+    data.flush();
+    this.bytes = this.bytes + 4;
+    this.nanos = System.nanoTime() - start;
+  }
+
+  // lays out, scrambles and checks the board at the given position, and encodes it
+  BatchBoard make(long index, int width, int height, long seed) {
+    BatchBoard b = new BatchBoard(index, seed);
+    try {
+      // the same steps, drawing from the same stream, as a game laying out a
+      // board from this seed, so the game can lay it out again
+      PackedBoard board = new PackedBoard(width, height);
+      board.set(0, PackedBoard.STATION, true);
+      SplittableRandom rand = new SplittableRandom(seed);
+      this.generators.get().generate(board, rand);
+      b.verified = true;
+      Scrambler scrambler = this.mode == SOLVED ? null : new Scrambler(this.mode == UNIQUE);
+      if (scrambler != null) {
+        scrambler.rework(board, 0, rand);
+      }
+      // the radius comes from the solved tree, before its cells are turned
+      b.radius = new Eccentricity(board, 0).winningRadius();
+      if (scrambler != null) {
+        scrambler.turn(board, rand, null);
+        b.verified = this.mode == UNIQUE ? scrambler.proved : new Solver(board, 0).solve() != null;
+      }
+      b.bytes = encode(board, b.radius, seed);
+    }
+    catch (RuntimeException e) {
+      b.failure = e;
+    }
+    return b;
+  }
+
+  // the given board laid out from the given seed as bytes: its width and height,
+  // the seed, the index of its power station, the given radius, and the wires of
+  // each cell
+  static byte[] encode(PackedBoard board, int radius, long seed) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(20 + board.size());
+    DataOutputStream data = new DataOutputStream(bytes);
+    try {
+      data.writeShort(board.width);
+      data.writeShort(board.height);
+      data.writeLong(seed);
+      int station = 0;
+      for (int i = 0; i < board.size(); i++) {
+        if (board.has(i, PackedBoard.STATION)) {
+          station = i;
+        }
+      }
+      data.writeInt(station);
+      data.writeInt(radius);
+      for (int i = 0; i < board.size(); i++) {
+        data.writeByte(board.mask(i) & PackedBoard.WIRES);
+      }
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // the next board of a stream written by run, or null at its end
+  static BatchBoard read(DataInputStream in, long index) throws IOException {
+    int width = in.readUnsignedShort();
+    int height = in.readUnsignedShort();
+    if (width == 0) {
+      return null;
+    }
+    BatchBoard b = new BatchBoard(index, in.readLong());
+    b.board = new PackedBoard(width, height);
+    b.board.set(in.readInt(), PackedBoard.STATION, true);
+    b.radius = in.readInt();
+    for (int i = 0; i < b.board.size(); i++) {
+      b.board.set(i, in.readUnsignedByte() & PackedBoard.WIRES, true);
+    }
+    b.verified = true;
+    return b;
+  }
+
+  // reads past the header of a stream written by run
+  static DataInputStream open(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+      throw new IOException("not a stream of boards");
+    }
+    return data;
+  }
+}
+
+class ExamplesBatchGenerator {
+  // the bytes of a run of the given batch
+  byte[] run(BatchGenerator batch, long count, long seed) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      batch.run(count, seed, out);
+    }
+    catch (IOException | InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+  // every board in the given bytes of a run
+  java.util.ArrayList<BatchBoard> read(byte[] bytes) {
+    java.util.ArrayList<BatchBoard> boards = new java.util.ArrayList<BatchBoard>();
+    try {
+      DataInputStream in = BatchGenerator.open(new ByteArrayInputStream(bytes));
+      for (BatchBoard b = BatchGenerator.read(in, 0); b != null;
+          b = BatchGenerator.read(in, boards.size())) {
+        boards.add(b);
+      }
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return boards;
+  }
+
+  void testRoundTrip(Tester t) {
+    BatchGenerator batch = new BatchGenerator(new ForkJoinPool(2), "prim",
+        BatchGenerator.SOLVED, new int[] {5, 6}, new int[] {4, 6});
+    java.util.ArrayList<BatchBoard> boards = this.read(this.run(batch, 7, 99));
+    t.checkExpect(boards.size(), 7);
+    t.checkExpect(batch.written, 7L);
+    t.checkExpect(batch.dropped, 0L);
+    SplittableRandom seeds = new SplittableRandom(99);
+    for (int k = 0; k < 7; k++) {
+      BatchBoard b = boards.get(k);
+      t.checkExpect(b.seed, seeds.nextLong());
+      t.checkExpect(b.board.width, k % 2 == 0 ? 5 : 6);
+      t.checkExpect(b.board.height, k % 2 == 0 ? 4 : 6);
+      t.checkExpect(b.board.has(0, PackedBoard.STATION), true);
+      t.checkExpect(Solver.solves(b.board, 0, b.board.size(), new int[b.board.size()]), true);
+      t.checkExpect(b.radius, new Eccentricity(b.board, 0).winningRadius());
+    }
+  }
+
+  void testSameAsGame(Tester t) {
+    BatchGenerator batch = new BatchGenerator(new ForkJoinPool(3), "kruskal",
+        BatchGenerator.UNIQUE, new int[] {7}, new int[] {5});
+    java.util.ArrayList<BatchBoard> boards = this.read(this.run(batch, 5, 4));
+    t.checkExpect(boards.size(), 5);
+    for (BatchBoard b : boards) {
+      GameEngine game = new GameEngine(7, 5, new KruskalGenerator(), new Scrambler(true), b.seed);
+      t.checkExpect(java.util.Arrays.equals(b.board.cells, game.cells.cells), true);
+      t.checkExpect(b.radius, game.radius);
+    }
+  }
+
+  void testOrderAndMemory(Tester t) {
+    BatchGenerator one = new BatchGenerator(new ForkJoinPool(1), "wilson",
+        BatchGenerator.SCRAMBLE, new int[] {4, 9, 3}, new int[] {8, 3, 3});
+    BatchGenerator many = new BatchGenerator(new ForkJoinPool(3), "wilson",
+        BatchGenerator.SCRAMBLE, new int[] {4, 9, 3}, new int[] {8, 3, 3});
+    // a ring of two still writes every board in order
+    many.capacity = 2;
+    byte[] bytes = this.run(one, 40, 17);
+    t.checkExpect(java.util.Arrays.equals(bytes, this.run(many, 40, 17)), true);
+    t.checkExpect((long) bytes.length, one.bytes);
+    t.checkExpect(this.read(bytes).size(), 40);
+  }
+
+  void testGenerator(Tester t) {
+    t.checkExpect(BatchGenerator.generator("dfs").name(), "dfs");
+    t.checkExpect(BatchGenerator.generator("nothing"), null);
+    // each thread looks its generator up once, and keeps it
+    BatchGenerator batch = new BatchGenerator(new ForkJoinPool(1), "prim",
+        BatchGenerator.SOLVED, new int[] {3}, new int[] {3});
+    t.checkExpect(batch.generators.get() == batch.generators.get(), true);
+    t.checkExpect(batch.generators.get().name(), "prim");
+    String message = null;
+    try {
+      new BatchGenerator(new ForkJoinPool(1), "nothing", BatchGenerator.SOLVED,
+          new int[] {3}, new int[] {3});
+    }
+    catch (IllegalArgumentException e) {
+      message = e.getMessage();
+    }
+    t.checkExpect(message, "no such generator: nothing");
+    t.checkExpect(BatchGenerator.mode("unique"), BatchGenerator.UNIQUE);
+    t.checkExpect(BatchGenerator.mode("scramble"), BatchGenerator.SCRAMBLE);
+    t.checkExpect(BatchGenerator.mode("shuffle"), -1);
+  }
+}
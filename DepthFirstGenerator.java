@@ -0,0 +1,40 @@
+import java.util.SplittableRandom;
+
+// a randomized depth-first search, which makes long winding corridors
+class DepthFirstGenerator extends ABoardGenerator {
+  public String name() {
+    return "dfs";
+  }
+
+  void layout(PackedBoard board, SplittableRandom rand) {
+    boolean[] visited = new boolean[board.size()];
+    int[] stack = new int[board.size()];
+    int[] options = new int[4];
+    int top = 1;
+    visited[0] = true;
+
+    while (top > 0) {
+      int i = stack[top - 1];
+      int count = 0;
+      for (int dir : PowerField.DIRS) {
+        int n = board.neighbor(i, dir);
+        if (n >= 0 && !visited[n]) {
+          options[count] = dir;
+          count = count + 1;
+        }
+      }
+
+      if (count == 0) {
+        top = top - 1;
+      }
+      else {
+        int dir = options[rand.nextInt(count)];
+        int n = board.neighbor(i, dir);
+        join(board, i, dir);
+        visited[n] = true;
+        stack[top] = n;
+        top = top + 1;
+      }
+    }
+  }
+}
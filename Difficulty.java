@@ -0,0 +1,236 @@
+import java.util.SplittableRandom;
+import tester.*;
+
+// scores how hard a board is to solve from 0 to 100, from what its solved layout looks
+// like and how far its cells are turned away from it; the layout is measured once,
+// and the turns are kept up to date one rotation at a time
+class Difficulty {
+  // how much each feature counts toward the score, out of 100
+  static final double CLICKS_WEIGHT = 35;
+  static final double UNFORCED_WEIGHT = 35;
+  static final double STRETCH_WEIGHT = 15;
+  static final double BRANCHING_WEIGHT = 15;
+  // how many levels the scores are split into
+  static final int LEVELS = 5;
+
+  int n;
+  // how many different ways each cell can be turned
+  byte[] period;
+  // how many clockwise clicks each cell is away from its solved wires, and in all
+  byte[] away;
+  int clicks;
+  // how many cells propagating the constraints leaves a solver to choose for
+  int unforced;
+  // the most wires between any two cells of the solved board
+  int diameter;
+  // the branches beyond two that every T and cross piece adds, in all
+  int branches;
+
+  // a measure of the given board, which must be solved
+  Difficulty(PackedBoard solved, int station) {
+    this(solved, station, new Eccentricity(solved, station));
+  }
+
+  // a measure of the given board, which must be solved, whose eccentricities were
+  // already found
+  Difficulty(PackedBoard solved, int station, Eccentricity reach) {
+    this.measure(solved, station, reach);
+  }
+
+  // a measure of the given board as it is now, restored from the clicks each cell is
+  // away from its solution and the features of the solved layout that took a search
+  Difficulty(PackedBoard now, byte[] away, int unforced, int diameter) {
+    this.n = now.size();
+    this.period = new byte[this.n];
+    this.away = away;
+    for (int i = 0; i < this.n; i++) {
+      int wires = now.mask(i) & PackedBoard.WIRES;
+      this.period[i] = (byte) Solver.period(wires);
+      this.branches = this.branches + Math.max(0, Integer.bitCount(wires) - 2);
+      this.clicks = this.clicks + away[i];
+    }
+    this.unforced = unforced;
+    this.diameter = diameter;
+  }
+
+  // a measure of the given board as it is now, from the solution a solver finds for a
+  // copy of it; a board with no solution is measured as if it were solved
+  static Difficulty of(PackedBoard now, int station) {
+    PackedBoard solved = new PackedBoard(now.width, now.height);
+    System.arraycopy(now.cells, 0, solved.cells, 0, now.size());
+    int[] turns = new Solver(solved, station).solve();
+    if (turns != null) {
+      Solver.apply(solved, turns);
+    }
+    Difficulty d = new Difficulty(solved, station);
+    for (int i = 0; turns != null && i < d.n; i++) {
+      d.away[i] = (byte) (turns[i] % d.period[i]);
+      d.clicks = d.clicks + d.away[i];
+    }
+    return d;
+  }
+
+  // measures the given solved board, with every cell at its solution, whose
+  // eccentricities are the given ones
+  void measure(PackedBoard solved, int station, Eccentricity reach) {
+    this.n = solved.size();
+    this.period = new byte[this.n];
+    this.away = new byte[this.n];
+    this.clicks = 0;
+    this.branches = 0;
+    for (int i = 0; i < this.n; i++) {
+      int wires = solved.mask(i) & PackedBoard.WIRES;
+      this.period[i] = (byte) Solver.period(wires);
+      this.branches = this.branches + Math.max(0, Integer.bitCount(wires) - 2);
+    }
+    this.unforced = Math.max(0, new Solver(solved, station).unforced());
+    this.diameter = reach.diameter;
+  }
+
+  // the given board with every cell turned to its solution
+  PackedBoard solved(PackedBoard now) {
+    PackedBoard solved = new PackedBoard(now.width, now.height);
+    for (int i = 0; i < this.n; i++) {
+      solved.cells[i] = (byte) Solver.TURNED[now.mask(i) & PackedBoard.WIRES][this.away[i]];
+    }
+    return solved;
+  }
+
+  // notes that the cell at the given index was turned clockwise once, which takes it
+  // one click closer to its solution, or a full turn away if it was there
+  void rotated(int i) {
+    this.rotated(i, 1);
+  }
+
+  // notes that the cell at the given index was turned clockwise the given number of
+  // times, from one to three
+  void rotated(int i, int turns) {
+    int before = this.away[i];
+    int after = (before + 4 * this.period[i] - turns) % this.period[i];
+    this.away[i] = (byte) after;
+    this.clicks = this.clicks + after - before;
+  }
+
+  // the score of the board as it is now, from 0 for a solved board that propagation
+  // alone finishes up to 100; the clicks count against half a turn per cell, the
+  // longest path against a path through every cell, and the extra branches against
+  // a third of the cells, each capped at one
+  double score() {
+    double cells = Math.max(1, this.n);
+    return CLICKS_WEIGHT * Math.min(1, this.clicks / (1.5 * cells))
+        + UNFORCED_WEIGHT * this.unforced / cells
+        + STRETCH_WEIGHT * Math.min(1, this.diameter / Math.max(1.0, this.n - 1))
+        + BRANCHING_WEIGHT * Math.min(1, 3 * this.branches / cells);
+  }
+
+  // the level of the board as it is now, from 1 up to LEVELS
+  int level() {
+    return 1 + Math.min(LEVELS - 1, (int) (this.score() * LEVELS / 100));
+  }
+}
+
+class ExamplesDifficulty {
+  // the clicks each cell of the given board is away from the given solved wires,
+  // counted from scratch
+  int clicksFrom(PackedBoard now, byte[] solved) {
+    int clicks = 0;
+    for (int i = 0; i < now.size(); i++) {
+      int wires = now.mask(i) & PackedBoard.WIRES;
+      int r = 0;
+      while (Solver.TURNED[wires][r] != (solved[i] & PackedBoard.WIRES)) {
+        r = r + 1;
+      }
+      clicks = clicks + r;
+    }
+    return clicks;
+  }
+
+  void testRotated(Tester t) {
+    // two corners with a dead end below each, joined by a T with a dead end below
+    PackedBoard b = new PackedBoard(3, 2);
+    b.set(0, PackedBoard.RIGHT | PackedBoard.BOTTOM, true);
+    b.set(1, PackedBoard.TOP, true);
+    b.set(2, PackedBoard.LEFT | PackedBoard.RIGHT | PackedBoard.BOTTOM, true);
+    b.set(3, PackedBoard.TOP, true);
+    b.set(4, PackedBoard.LEFT | PackedBoard.BOTTOM, true);
+    b.set(5, PackedBoard.TOP, true);
+    Difficulty d = new Difficulty(b, 0);
+    t.checkExpect(d.clicks, 0);
+    t.checkExpect(d.diameter, 4);
+    t.checkExpect(d.branches, 1);
+    t.checkExpect(d.unforced, 0);
+    d.rotated(2);
+    t.checkExpect(d.clicks, 3);
+    d.rotated(2);
+    d.rotated(2);
+    t.checkExpect(d.clicks, 1);
+    d.rotated(2);
+    t.checkExpect(d.clicks, 0);
+    d.rotated(1);
+    t.checkExpect(d.clicks, 3);
+    t.checkExpect(d.score() > 0, true);
+  }
+
+  void testStretch(Tester t) {
+    // a snake through every cell, and a comb of rows hanging off the first column
+    PackedBoard snake = new PackedBoard(6, 5);
+    PackedBoard comb = new PackedBoard(6, 5);
+    for (int row = 0; row < 5; row++) {
+      for (int col = 0; col < 5; col++) {
+        int i = snake.index(col, row);
+        snake.set(i, PackedBoard.RIGHT, true);
+        snake.set(snake.neighbor(i, PackedBoard.RIGHT), PackedBoard.LEFT, true);
+        comb.set(i, PackedBoard.RIGHT, true);
+        comb.set(comb.neighbor(i, PackedBoard.RIGHT), PackedBoard.LEFT, true);
+      }
+      if (row < 4) {
+        int turn = snake.index(row % 2 == 0 ? 5 : 0, row);
+        snake.set(turn, PackedBoard.BOTTOM, true);
+        snake.set(snake.neighbor(turn, PackedBoard.BOTTOM), PackedBoard.TOP, true);
+        comb.set(comb.index(0, row), PackedBoard.BOTTOM, true);
+        comb.set(comb.index(0, row + 1), PackedBoard.TOP, true);
+      }
+    }
+    Difficulty winding = new Difficulty(snake, 0);
+    Difficulty branching = new Difficulty(comb, 0);
+    t.checkExpect(winding.diameter, 29);
+    t.checkExpect(branching.diameter, 14);
+    t.checkExpect(winding.score() != branching.score(), true);
+    // the score does not depend on the radius a game plays the board with
+    GameEngine e = new GameEngine(snake, 0, 16, 1L, null);
+    GameEngine f = new GameEngine(snake, 0, 40, 1L, null);
+    t.checkExpect(e.difficulty.score(), f.difficulty.score());
+  }
+
+  void testScramble(Tester t) {
+    PackedBoard b = new PackedBoard(15, 12);
+    SplittableRandom rand = new SplittableRandom(6);
+    new KruskalGenerator().generate(b, rand);
+    byte[] solved = b.cells.clone();
+    Difficulty d = new Difficulty(b, 0);
+    double calm = d.score();
+    new Scrambler(false).turn(b, rand, d);
+    t.checkExpect(d.clicks, this.clicksFrom(b, solved));
+    t.checkExpect(d.score() > calm, true);
+    for (int k = 0; k < 200; k++) {
+      int i = rand.nextInt(b.size());
+      b.rotate(i);
+      d.rotated(i);
+    }
+    t.checkExpect(d.clicks, this.clicksFrom(b, solved));
+    t.checkExpect(d.score() >= 0 && d.score() <= 100, true);
+    t.checkExpect(d.level() >= 1 && d.level() <= Difficulty.LEVELS, true);
+  }
+
+  void testGame(Tester t) {
+    GameEngine game = new GameEngine(6, 6, new KruskalGenerator(), null, 12L);
+    byte[] solved = game.cells.cells.clone();
+    t.checkExpect(game.difficulty.clicks, 0);
+    game.rotate(7);
+    t.checkExpect(game.difficulty.clicks, this.clicksFrom(game.cells, solved));
+    GameEngine scrambled = new GameEngine(6, 6, new KruskalGenerator(),
+        new Scrambler(false), 12L);
+    t.checkExpect(scrambled.difficulty.clicks, this.clicksFrom(scrambled.cells, solved));
+    t.checkExpect(scrambled.difficulty.clicks > 0, true);
+  }
+}
@@ -0,0 +1,47 @@
+// disjoint sets of cell indices, with path compression and union by rank
+class DisjointSet {
+  int[] parent;
+  byte[] rank;
+  // how many times a representative was looked up
+  long lookups;
+
+  DisjointSet(int n) {
+    this.parent = new int[n];
+    this.rank = new byte[n];
+    for (int i = 0; i < n; i++) {
+      this.parent[i] = i;
+    }
+  }
+
+  // the representative of the set containing the given index,
+  // pointing every other node on the way at its grandparent
+  int find(int i) {
+    this.lookups = this.lookups + 1;
+    while (this.parent[i] != i) {
+      this.parent[i] = this.parent[this.parent[i]];
+      i = this.parent[i];
+    }
+    return i;
+  }
+
+  // joins the sets containing the two given indices,
+  // returning false if they were already the same set
+  boolean union(int a, int b) {
+    int ra = this.find(a);
+    int rb = this.find(b);
+    if (ra == rb) {
+      return false;
+    }
+    if (this.rank[ra] < this.rank[rb]) {
+      this.parent[ra] = rb;
+    }
+    else if (this.rank[ra] > this.rank[rb]) {
+      this.parent[rb] = ra;
+    }
+    else {
+      this.parent[rb] = ra;
+      this.rank[ra] = (byte) (this.rank[ra] + 1);
+    }
+    return true;
+  }
+}
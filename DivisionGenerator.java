@@ -0,0 +1,76 @@
+import java.util.SplittableRandom;
+
+// recursive division: starts with every wire in place and repeatedly splits
+// a region in two, cutting every wire across the split but one
+class DivisionGenerator extends ABoardGenerator {
+  public String name() {
+    return "division";
+  }
+
+  void layout(PackedBoard board, SplittableRandom rand) {
+    for (int i = 0; i < board.size(); i++) {
+      for (int dir : PowerField.DIRS) {
+        board.set(i, dir, board.neighbor(i, dir) >= 0);
+      }
+    }
+
+    // the regions left to divide, as column, row, width and height
+    int[] regions = new int[4 * Math.max(1, board.size())];
+    regions[0] = 0;
+    regions[1] = 0;
+    regions[2] = board.width;
+    regions[3] = board.height;
+    int count = 1;
+
+    while (count > 0) {
+      count = count - 1;
+      int col = regions[4 * count];
+      int row = regions[4 * count + 1];
+      int w = regions[4 * count + 2];
+      int h = regions[4 * count + 3];
+      if (w < 2 && h < 2) {
+        continue;
+      }
+
+      boolean horizontal = w < h || (w == h && rand.nextBoolean()) || w < 2;
+      if (horizontal) {
+        // cut between row + split - 1 and row + split, keeping one wire across
+        int split = 1 + rand.nextInt(h - 1);
+        int gap = col + rand.nextInt(w);
+        for (int c = col; c < col + w; c++) {
+          if (c != gap) {
+            this.cut(board, board.index(c, row + split - 1), PackedBoard.BOTTOM);
+          }
+        }
+        count = push(regions, count, col, row, w, split);
+        count = push(regions, count, col, row + split, w, h - split);
+      }
+      else {
+        int split = 1 + rand.nextInt(w - 1);
+        int gap = row + rand.nextInt(h);
+        for (int r = row; r < row + h; r++) {
+          if (r != gap) {
+            this.cut(board, board.index(col + split - 1, r), PackedBoard.RIGHT);
+          }
+        }
+        count = push(regions, count, col, row, split, h);
+        count = push(regions, count, col + split, row, w - split, h);
+      }
+    }
+  }
+
+  // removes the wire between the cell at the given index and its neighbor in the given direction
+  void cut(PackedBoard board, int i, int dir) {
+    board.set(i, dir, false);
+    board.set(board.neighbor(i, dir), PackedBoard.opposite(dir), false);
+  }
+
+  // pushes a region onto the given stack of regions, returning the new count
+  static int push(int[] regions, int count, int col, int row, int w, int h) {
+    regions[4 * count] = col;
+    regions[4 * count + 1] = row;
+    regions[4 * count + 2] = w;
+    regions[4 * count + 3] = h;
+    return count + 1;
+  }
+}
@@ -0,0 +1,113 @@
+import tester.*;
+
+// how far each cell of a solved board, whose wires form a tree, is from the cell
+// farthest from it; that cell is always one of the two ends of a longest path, so a
+// search from any cell finds one end, a search from that end finds the other along
+// with the diameter, and a search from the other end leaves every cell's distance to
+// both ends, the larger of which is its eccentricity
+//
+// no cell can light the whole board with a radius of its eccentricity or less, so
+// the smallest radius any power station can win with is one more than the smallest
+// eccentricity, found at the middle of every longest path
+class Eccentricity {
+  // the most wires between any two cells
+  int diameter;
+  // the two ends of a longest path
+  int first;
+  int second;
+  // the hops of each cell from each end, or -1 for cells the tree does not reach
+  int[] fromFirst;
+  int[] fromSecond;
+  // the smallest eccentricity of any cell, and a cell that has it
+  int radius;
+  int center;
+
+  // the eccentricities of the cells of the given solved board wired to the cell at
+  // the given index
+  Eccentricity(PackedBoard solved, int start) {
+    this.first = farthest(new PowerField(solved, start).hops);
+    this.fromFirst = new PowerField(solved, this.first).hops;
+    this.second = farthest(this.fromFirst);
+    this.diameter = this.fromFirst[this.second];
+    this.fromSecond = new PowerField(solved, this.second).hops;
+    this.center = this.first;
+    for (int i = 0; i < this.fromFirst.length; i++) {
+      if (this.fromFirst[i] != PowerField.UNPOWERED && this.of(i) < this.of(this.center)) {
+        this.center = i;
+      }
+    }
+    this.radius = this.of(this.center);
+  }
+
+  // the index of the cell with the most hops
+  static int farthest(int[] hops) {
+    int far = 0;
+    for (int i = 1; i < hops.length; i++) {
+      if (hops[i] > hops[far]) {
+        far = i;
+      }
+    }
+    return far;
+  }
+
+  // the most wires between the cell at the given index and any other
+  int of(int i) {
+    return Math.max(this.fromFirst[i], this.fromSecond[i]);
+  }
+
+  // the smallest radius that lets a power station light every cell of the tree
+  int winningRadius() {
+    return this.radius + 1;
+  }
+}
+
+class ExamplesEccentricity {
+  // a comb: a spine along the top with a tooth hanging from every other cell
+  PackedBoard comb() {
+    PackedBoard b = new PackedBoard(5, 3);
+    for (int col = 0; col < 5; col++) {
+      int i = b.index(col, 0);
+      b.set(i, PackedBoard.LEFT, col > 0);
+      b.set(i, PackedBoard.RIGHT, col < 4);
+      if (col % 2 == 0) {
+        b.set(i, PackedBoard.BOTTOM, true);
+        b.set(b.index(col, 1), PackedBoard.TOP | PackedBoard.BOTTOM, true);
+        b.set(b.index(col, 2), PackedBoard.TOP, true);
+      }
+    }
+    return b;
+  }
+
+  void testComb(Tester t) {
+    PackedBoard b = this.comb();
+    Eccentricity e = new Eccentricity(b, 0);
+    // from the foot of the first tooth to the foot of the last
+    t.checkExpect(e.diameter, 8);
+    t.checkExpect(e.radius, 4);
+    t.checkExpect(e.center, b.index(2, 0));
+    t.checkExpect(e.winningRadius(), 5);
+    t.checkExpect(e.of(b.index(0, 0)), 6);
+    t.checkExpect(e.of(b.index(1, 1)), -1);
+    // the same from any cell of the tree
+    Eccentricity other = new Eccentricity(b, b.index(4, 2));
+    t.checkExpect(other.diameter, 8);
+    t.checkExpect(other.radius, 4);
+  }
+
+  void testMatchesSearch(Tester t) {
+    PackedBoard b = new PackedBoard(11, 9);
+    new KruskalGenerator().generate(b, new java.util.SplittableRandom(13));
+    Eccentricity e = new Eccentricity(b, 40);
+    boolean same = true;
+    int least = b.size();
+    for (int i = 0; i < b.size(); i++) {
+      int[] hops = new PowerField(b, i).hops;
+      int most = hops[Eccentricity.farthest(hops)];
+      same = same && e.of(i) == most;
+      least = Math.min(least, most);
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(e.radius, least);
+    t.checkExpect(e.radius, (e.diameter + 1) / 2);
+  }
+}
@@ -0,0 +1,94 @@
+import java.util.SplittableRandom;
+
+// every edge of a grid, encoded implicitly by an id: the index of the cell
+// it starts from times two, plus DOWN for the edge to the cell below
+// or ACROSS for the edge to the cell on the right
+class EdgeList {
+  static final int DOWN = 0;
+  static final int ACROSS = 1;
+  // weights are drawn below these bounds, so vertical wires are preferred
+  static final int VERTICAL_WEIGHTS = 40;
+  static final int HORIZONTAL_WEIGHTS = 80;
+
+  int width;
+  int height;
+  // the ids of every edge on the grid
+  int[] ids;
+  // the weight of each edge, indexed by id
+  byte[] weights;
+
+  EdgeList(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.ids = new int[width * (height - 1) + (width - 1) * height];
+    this.weights = new byte[2 * width * height];
+    int k = 0;
+    for (int i = 0; i < width * height; i++) {
+      if (i % height != height - 1) {
+        this.ids[k] = 2 * i + DOWN;
+        k = k + 1;
+      }
+      if (i < (width - 1) * height) {
+        this.ids[k] = 2 * i + ACROSS;
+        k = k + 1;
+      }
+    }
+  }
+
+  // the number of edges on the grid
+  int count() {
+    return this.ids.length;
+  }
+
+  // the cell the given edge starts from
+  static int from(int id) {
+    return id >> 1;
+  }
+
+  // the cell the given edge ends at
+  int to(int id) {
+    if (isVertical(id)) {
+      return (id >> 1) + 1;
+    }
+    else {
+      return (id >> 1) + this.height;
+    }
+  }
+
+  // does the given edge join a cell to the one below it
+  static boolean isVertical(int id) {
+    return (id & 1) == DOWN;
+  }
+
+  // gives every edge a random weight
+  void randomize(SplittableRandom rand) {
+    for (int id : this.ids) {
+      // preference for vertical wires: range of random numbers 
+      // for weights is smaller for vertical than horizontal
+      if (isVertical(id)) {
+        this.weights[id] = (byte) rand.nextInt(VERTICAL_WEIGHTS);
+      }
+      else {
+        this.weights[id] = (byte) rand.nextInt(HORIZONTAL_WEIGHTS);
+      }
+    }
+  }
+
+  // sorts the edge ids by weight from smallest to largest with a counting sort,
+  // keeping edges of equal weight in their current order
+  void sort() {
+    int[] starts = new int[HORIZONTAL_WEIGHTS + 1];
+    for (int id : this.ids) {
+      starts[this.weights[id] + 1] = starts[this.weights[id] + 1] + 1;
+    }
+    for (int w = 1; w <= HORIZONTAL_WEIGHTS; w++) {
+      starts[w] = starts[w] + starts[w - 1];
+    }
+    int[] sorted = new int[this.ids.length];
+    for (int id : this.ids) {
+      sorted[starts[this.weights[id]]] = id;
+      starts[this.weights[id]] = starts[this.weights[id]] + 1;
+    }
+    this.ids = sorted;
+  }
+}
@@ -0,0 +1,583 @@
+import java.util.SplittableRandom;
+import tester.*;
+
+// the game itself, with nothing drawn: the board and how it was laid out, the power
+// station, the moves played, and whether the board is solved; anything that shows
+// the game, like LightEmAll, turns its events into calls on the engine and hears
+// back what changed through an IGameView, so the engine can be played, tested and
+// measured without a window
+//
+// the board is won once every cell is lit, that is wired to the power station
+// within the radius; which cells are lit is kept up to date with the power, so
+// asking costs nothing, except after the power station moves along a tree of wires:
+// that only shifts the hops by one on either side of the wire it crossed, which the
+// power field notes without touching the cells, so a run of moves is settled into
+// the hops and the lit cells at once, when something next asks
+class GameEngine {
+  // the width and height of the board
+  int width;
+  int height;
+  // how far the power station reaches; a new board gets the smallest radius that
+  // lets it be won, once the station is at the middle of the solved tree
+  int radius;
+  // lays out the wires of each new board
+  IBoardGenerator generator;
+  // the seed the current board was laid out from, which lays out the same board again
+  long seed;
+  // turns the cells of each new board away from its solution, or null to start solved
+  Scrambler scrambler;
+  // the wires and power station of every cell, packed into bit masks
+  PackedBoard cells;
+  // how far each cell is from the power station
+  PowerField power;
+  // how hard the board is, kept up to date as its cells are turned
+  Difficulty difficulty;
+  // how far each cell of the solved board is from the cell farthest from it, and
+  // that of the cell the power station is on, kept up to date as it moves
+  Eccentricity reach;
+  int stationReach;
+  // the moves played on this board, which can be taken back and played again
+  MoveHistory history;
+  // whether a rotation updates only the cells it can affect
+  // instead of recomputing the power of the whole board
+  boolean incremental;
+  // the clicks played and the seconds gone by on this board
+  int moves;
+  int time;
+  // saves a snapshot of the game every few seconds, or null not to
+  Autosave autosave;
+  // which cells are wired to the power station within the radius, and how many
+  boolean[] lit;
+  int litCount;
+  // has the power station moved since the lit cells were counted
+  boolean stale;
+  // told about every change to the board, or null if nothing shows the game
+  IGameView view;
+
+  // a game of a new board of the given size laid out by the given generator from the
+  // given seed, and scrambled by the given scrambler unless it is null
+  GameEngine(int width, int height, IBoardGenerator generator, Scrambler scrambler,
+      long seed) {
+    this.width = width;
+    this.height = height;
+    this.incremental = true;
+    this.generator = generator;
+    this.scrambler = scrambler;
+    this.seed = seed;
+    this.newBoard();
+  }
+
+  // a game of the given board as it stands, with its power station at the given index,
+  // whose difficulty is the given one, or is measured by solving the board if that
+  // is null
+  GameEngine(PackedBoard cells, int station, int radius, long seed, Difficulty difficulty) {
+    this.width = cells.width;
+    this.height = cells.height;
+    this.radius = radius;
+    this.incremental = true;
+    this.generator = new KruskalGenerator();
+    this.seed = seed;
+    this.load(cells, station, difficulty);
+  }
+
+  // a new seed for a board nobody has asked for by seed
+  static long freshSeed() {
+    return new SplittableRandom().nextLong();
+  }
+
+  // lays out the board given by the seed from scratch, scrambled if it should be,
+  // with the power station in the top left corner
+  void newBoard() {
+    long start = Metrics.start();
+    long allocated = Metrics.allocated();
+    this.cells = new PackedBoard(this.width, this.height);
+    this.cells.set(0, PackedBoard.STATION, true);
+    SplittableRandom rand = new SplittableRandom(this.seed);
+    this.generator.generate(this.cells, rand);
+    if (this.scrambler != null) {
+      this.scrambler.rework(this.cells, 0, rand);
+    }
+    this.reach = new Eccentricity(this.cells, 0);
+    this.stationReach = this.reach.of(0);
+    this.radius = this.reach.winningRadius();
+    this.difficulty = new Difficulty(this.cells, 0, this.reach);
+    if (this.scrambler != null) {
+      this.scrambler.turn(this.cells, rand, this.difficulty);
+    }
+    this.history = new MoveHistory();
+    this.powerFrom(0);
+    if (this.view != null) {
+      this.view.boardChanged();
+    }
+    Metrics.event(Metrics.NEW_BOARD, start, allocated);
+  }
+
+  // sets up the given board as it stands in place of the one being played, with its
+  // power station at the given index and the given difficulty, unless that is null;
+  // the radius stays as it was given, and the eccentricities come from the solution
+  // the difficulty knows
+  void load(PackedBoard cells, int station, Difficulty difficulty) {
+    this.cells = new PackedBoard(cells.width, cells.height);
+    for (int i = 0; i < cells.size(); i++) {
+      this.cells.cells[i] = (byte) (cells.mask(i) & PackedBoard.WIRES);
+    }
+    this.cells.set(station, PackedBoard.STATION, true);
+    this.difficulty = difficulty != null ? difficulty : Difficulty.of(this.cells, station);
+    this.reach = new Eccentricity(this.difficulty.solved(this.cells), station);
+    this.stationReach = this.reach.of(station);
+    this.history = new MoveHistory();
+    this.powerFrom(station);
+    if (this.view != null) {
+      this.view.boardChanged();
+    }
+  }
+
+  // plays on the given cells from now on, as they stand, with the power station at
+  // the given index, as a board of its own: its difficulty and eccentricities are
+  // measured by solving it, it gets the smallest radius that can win it, and no moves
+  // have been played on it; the one who built the cells is the one who shows them,
+  // so the view is not told
+  void use(PackedBoard cells, int station) {
+    this.cells = cells;
+    this.width = cells.width;
+    this.height = cells.height;
+    this.difficulty = Difficulty.of(cells, station);
+    this.reach = new Eccentricity(this.difficulty.solved(cells), station);
+    this.stationReach = this.reach.of(station);
+    this.radius = this.reach.winningRadius();
+    this.history = new MoveHistory();
+    this.powerFrom(station);
+  }
+
+  // starts the game over on a new board laid out by the given generator
+  void restart(IBoardGenerator generator) {
+    this.restart(generator, freshSeed());
+  }
+
+  // starts the game over on the board laid out by the given generator from the given seed
+  void restart(IBoardGenerator generator, long seed) {
+    this.generator = generator;
+    this.seed = seed;
+    this.moves = 0;
+    this.time = 0;
+    this.newBoard();
+  }
+
+  // a solver for the board as it is now, with the game's power station and radius
+  Solver solver() {
+    return new Solver(this.cells, this.power.station, this.radius);
+  }
+
+  // the index of the cell the power station is on
+  int station() {
+    return this.power.station;
+  }
+
+  // the player clicks the cell at the given index, turning it clockwise
+  void click(int i) {
+    this.moves = this.moves + 1;
+    this.rotate(i);
+    this.history.push(MoveHistory.rotation(i, 1));
+  }
+
+  // rotates the cell at the given index clockwise and updates the power of the board
+  void rotate(int i) {
+    this.rotate(i, 1);
+  }
+
+  // rotates the cell at the given index clockwise the given number of times
+  // and updates the power of the board once
+  void rotate(int i, int clicks) {
+    this.settle();
+    this.difficulty.rotated(i, clicks);
+    if (this.incremental) {
+      this.power.rotate(i, clicks);
+      if (this.view != null) {
+        this.view.cellChanged(i);
+      }
+      for (int k = 0; k < this.power.changedCount; k++) {
+        this.powerChanged(this.power.changed[k]);
+      }
+      this.powerChanged(this.power.station);
+    }
+    else {
+      for (int r = 0; r < clicks; r++) {
+        this.cells.rotate(i);
+      }
+      if (this.view != null) {
+        this.view.cellChanged(i);
+      }
+      this.recompute();
+    }
+  }
+
+  // moves the power station one cell in the given direction, as a move of the game,
+  // if a wire joins the two cells; is that where it went
+  boolean moveStation(int dir) {
+    int from = this.power.station;
+    if (!this.cells.connected(from, dir)) {
+      return false;
+    }
+    this.shiftStation(from, dir);
+    this.history.push(MoveHistory.station(from, dir));
+    return true;
+  }
+
+  // moves the power station from the cell at the given index to its neighbor in
+  // the given direction; a view hears that the station moved rather than about
+  // every cell, so a run of moves costs it one pass when it next draws the board
+  void shiftStation(int from, int dir) {
+    int to = this.cells.neighbor(from, dir);
+    this.cells.set(from, PackedBoard.STATION, false);
+    this.cells.set(to, PackedBoard.STATION, true);
+    if (this.view != null) {
+      this.view.cellChanged(from);
+      this.view.cellChanged(to);
+    }
+    this.stationReach = this.reach.of(to);
+    long start = Metrics.start();
+    boolean shifted = this.power.moveStation(to);
+    this.stale = true;
+    if (!shifted) {
+      Metrics.phase(Metrics.SET_DEFAULTS, start);
+    }
+    if (this.view != null) {
+      this.view.stationMoved();
+    }
+  }
+
+  // brings the hops and the lit cells up to date with the moves of the power station
+  void settle() {
+    if (this.stale) {
+      this.power.settle();
+      this.countLit();
+    }
+  }
+
+  // takes back the last move played, if there is one; was there
+  boolean undo() {
+    if (!this.history.canUndo()) {
+      return false;
+    }
+    this.replay(this.history.undo(), true);
+    return true;
+  }
+
+  // plays the last move taken back again, if there is one; was there
+  boolean redo() {
+    if (!this.history.canRedo()) {
+      return false;
+    }
+    this.replay(this.history.redo(), false);
+    return true;
+  }
+
+  // plays the given move from the history again, or takes it back; a rotation is
+  // taken back by turning the rest of the way around in one update of the power
+  void replay(int move, boolean back) {
+    int cell = MoveHistory.cell(move);
+    if (MoveHistory.movesStation(move)) {
+      int dir = MoveHistory.dir(move);
+      if (back) {
+        this.shiftStation(this.cells.neighbor(cell, dir), PackedBoard.opposite(dir));
+      }
+      else {
+        this.shiftStation(cell, dir);
+      }
+    }
+    else {
+      int clicks = MoveHistory.clicks(move);
+      this.rotate(cell, back ? 4 - clicks : clicks);
+      this.moves = this.moves + (back ? -1 : 1);
+    }
+  }
+
+  // a second goes by, and a snapshot of the game is saved whenever it is time to
+  void tick() {
+    this.time = this.time + 1;
+    if (this.autosave != null && this.time % this.autosave.every == 0) {
+      this.autosave.save(this);
+    }
+  }
+
+  // works out how far every cell is from the power station in one breadth-first
+  // pass, and tells the view about all of them
+  void recompute() {
+    long start = Metrics.start();
+    this.power.recompute();
+    this.countLit();
+    if (this.view != null) {
+      for (int i = 0; i < this.cells.size(); i++) {
+        this.view.powerChanged(i);
+      }
+    }
+    Metrics.phase(Metrics.SET_DEFAULTS, start);
+  }
+
+  // works out how far every cell of a new board is from the power station at the
+  // given index
+  void powerFrom(int station) {
+    long start = Metrics.start();
+    this.power = new PowerField(this.cells, station);
+    this.countLit();
+    Metrics.phase(Metrics.SET_DEFAULTS, start);
+  }
+
+  // notes that the power of the cell at the given index may have changed
+  void powerChanged(int i) {
+    this.updateLit(i);
+    if (this.view != null) {
+      this.view.powerChanged(i);
+    }
+  }
+
+  // counts the lit cells from scratch
+  void countLit() {
+    this.stale = false;
+    if (this.lit == null || this.lit.length != this.cells.size()) {
+      this.lit = new boolean[this.cells.size()];
+    }
+    java.util.Arrays.fill(this.lit, false);
+    this.litCount = 0;
+    for (int i = 0; i < this.cells.size(); i++) {
+      this.updateLit(i);
+    }
+  }
+
+  // brings whether the cell at the given index is lit up to date
+  void updateLit(int i) {
+    boolean now = this.isLit(i);
+    if (now != this.lit[i]) {
+      this.lit[i] = now;
+      this.litCount = this.litCount + (now ? 1 : -1);
+    }
+  }
+
+  // is the cell at the given index wired to the power station within the radius
+  boolean isLit(int i) {
+    return this.power.isConnected(i) && this.power.hops(i) < this.radius;
+  }
+
+  // can the power station light every cell of the solved board from where it is
+  boolean inReach() {
+    return this.stationReach < this.radius;
+  }
+
+  // is every cell lit, which wins the game
+  boolean isSolved() {
+    this.settle();
+    return this.litCount == this.cells.size();
+  }
+}
+
+// a view that writes down what it is told
+class RecordingView implements IGameView {
+  int boards;
+  java.util.ArrayList<Integer> cells = new java.util.ArrayList<Integer>();
+  java.util.ArrayList<Integer> powers = new java.util.ArrayList<Integer>();
+  int stations;
+
+  public void boardChanged() {
+    this.boards = this.boards + 1;
+  }
+
+  public void cellChanged(int i) {
+    this.cells.add(i);
+  }
+
+  public void powerChanged(int i) {
+    this.powers.add(i);
+  }
+
+  public void stationMoved() {
+    this.stations = this.stations + 1;
+  }
+}
+
+class ExamplesGameEngine {
+  // a solved board, played without anything to show it
+  void testHeadless(Tester t) {
+    GameEngine e = new GameEngine(6, 5, new KruskalGenerator(), null, 8L);
+    // the radius is only enough from the middle of the tree, and the station starts
+    // in the corner
+    e.radius = 30;
+    e.recompute();
+    t.checkExpect(e.isSolved(), true);
+    t.checkExpect(e.litCount, 30);
+    t.checkExpect(e.station(), 0);
+    e.click(7);
+    t.checkExpect(e.moves, 1);
+    t.checkExpect(e.history.played, 1);
+    t.checkExpect(e.difficulty.clicks > 0, true);
+    e.rotate(7, 3);
+    t.checkExpect(e.isSolved(), true);
+    e.tick();
+    e.tick();
+    t.checkExpect(e.time, 2);
+  }
+
+  // a board is won once every cell is lit, and the lit cells are kept up to date
+  // the same whether a click updates the power in part or in whole
+  void testWin(Tester t) {
+    GameEngine e = new GameEngine(7, 6, new KruskalGenerator(), new Scrambler(true), 21L);
+    GameEngine whole = new GameEngine(7, 6, new KruskalGenerator(), new Scrambler(true), 21L);
+    whole.incremental = false;
+    e.radius = 42;
+    e.recompute();
+    whole.radius = 42;
+    whole.recompute();
+    t.checkExpect(e.isSolved(), false);
+    int[] turns = e.solver().solve();
+    for (int i = 0; i < turns.length; i++) {
+      for (int k = 0; k < turns[i]; k++) {
+        e.click(i);
+        whole.click(i);
+        int lit = 0;
+        for (int j = 0; j < e.cells.size(); j++) {
+          lit = lit + (e.isLit(j) ? 1 : 0);
+        }
+        t.checkExpect(e.litCount, lit);
+        t.checkExpect(whole.litCount, lit);
+      }
+    }
+    t.checkExpect(e.isSolved(), true);
+    t.checkExpect(whole.isSolved(), true);
+    t.checkExpect(e.difficulty.clicks, 0);
+    // too small a radius leaves the far cells dark
+    e.radius = 2;
+    e.recompute();
+    t.checkExpect(e.isSolved(), false);
+  }
+
+  // moving the station follows the wires, and undo and redo go back over every move
+  void testMovesAndHistory(Tester t) {
+    GameEngine e = new GameEngine(6, 6, new KruskalGenerator(), null, 3L);
+    e.radius = 36;
+    e.recompute();
+    int dir = e.cells.connectRight(0) ? PackedBoard.RIGHT : PackedBoard.BOTTOM;
+    t.checkExpect(e.moveStation(PackedBoard.LEFT), false);
+    t.checkExpect(e.moveStation(dir), true);
+    int to = e.cells.neighbor(0, dir);
+    t.checkExpect(e.station(), to);
+    t.checkExpect(e.cells.has(to, PackedBoard.STATION), true);
+    t.checkExpect(e.cells.has(0, PackedBoard.STATION), false);
+    e.click(20);
+    byte[] played = e.cells.cells.clone();
+    t.checkExpect(e.undo(), true);
+    t.checkExpect(e.undo(), true);
+    t.checkExpect(e.undo(), false);
+    t.checkExpect(e.station(), 0);
+    t.checkExpect(e.moves, 0);
+    t.checkExpect(e.isSolved(), true);
+    t.checkExpect(e.redo(), true);
+    t.checkExpect(e.redo(), true);
+    t.checkExpect(e.redo(), false);
+    t.checkExpect(java.util.Arrays.equals(e.cells.cells, played), true);
+    t.checkExpect(e.power.hops, new PowerField(e.cells, e.station()).hops);
+  }
+
+  // holding an arrow key on a tree of wires shifts the hops without searching the
+  // board, and the view still sees every cell's new power after each step
+  void testStationRun(Tester t) {
+    GameEngine e = new GameEngine(12, 10, new KruskalGenerator(), null, 17L);
+    GameEngine shown = new GameEngine(12, 10, new KruskalGenerator(), null, 17L);
+    RecordingView v = new RecordingView();
+    shown.view = v;
+    int dir = e.cells.connectRight(0) ? PackedBoard.RIGHT : PackedBoard.BOTTOM;
+    Metrics.enable();
+    Metrics.clear();
+    int steps = 0;
+    while (e.moveStation(dir)) {
+      shown.moveStation(dir);
+      steps = steps + 1;
+    }
+    while (e.moveStation(PackedBoard.opposite(dir))) {
+      shown.moveStation(PackedBoard.opposite(dir));
+    }
+    long searches = Metrics.snapshot().phaseCalls[Metrics.SET_DEFAULTS];
+    Metrics.enabled = false;
+    t.checkExpect(steps >= 1, true);
+    t.checkExpect(searches, 0L);
+    t.checkExpect(e.power.tree.lazy, true);
+    // the view hears of each move once, and nothing is settled until it asks
+    t.checkExpect(shown.power.tree.lazy, true);
+    t.checkExpect(v.powers.size(), 0);
+    t.checkExpect(v.stations, 2 * steps);
+    t.checkExpect(e.station(), 0);
+    shown.settle();
+    boolean same = true;
+    for (int i = 0; i < 120; i++) {
+      same = same && e.power.hops(i) == shown.power.hops[i];
+    }
+    t.checkExpect(same, true);
+    e.settle();
+    t.checkExpect(e.power.hops, new PowerField(e.cells, 0).hops);
+    t.checkExpect(e.litCount, shown.litCount);
+  }
+
+  // a new board gets the smallest radius it can be won with, which it is once the
+  // station walks to the middle of the tree and not before
+  void testRadius(Tester t) {
+    GameEngine e = new GameEngine(9, 7, new KruskalGenerator(), null, 29L);
+    int center = e.reach.center;
+    int[] toCenter = new PowerField(e.cells, center).hops;
+    t.checkExpect(e.radius, toCenter[Eccentricity.farthest(toCenter)] + 1);
+    t.checkExpect(e.radius, (e.reach.diameter + 1) / 2 + 1);
+    t.checkExpect(e.inReach(), e.stationReach < e.radius);
+    t.checkExpect(e.isSolved(), e.inReach());
+    boolean tracked = true;
+    while (e.station() != center) {
+      for (int dir : PowerField.DIRS) {
+        int n = e.cells.neighbor(e.station(), dir);
+        if (e.cells.connected(e.station(), dir) && toCenter[n] < toCenter[e.station()]) {
+          e.moveStation(dir);
+          int[] hops = new PowerField(e.cells, e.station()).hops;
+          tracked = tracked && e.stationReach == hops[Eccentricity.farthest(hops)];
+          break;
+        }
+      }
+    }
+    t.checkExpect(tracked, true);
+    t.checkExpect(e.stationReach, e.radius - 1);
+    t.checkExpect(e.isSolved(), true);
+    // and one less leaves some cell dark wherever the station is
+    e.radius = e.radius - 1;
+    e.recompute();
+    t.checkExpect(e.isSolved(), false);
+    t.checkExpect(e.inReach(), false);
+  }
+
+  // a board that is loaded finds its eccentricities from the solution it measures
+  void testLoadedReach(Tester t) {
+    GameEngine e = new GameEngine(7, 6, new KruskalGenerator(), new Scrambler(true), 8L);
+    GameEngine loaded = new GameEngine(e.cells, 0, e.radius, 8L, null);
+    t.checkExpect(loaded.reach.diameter, e.reach.diameter);
+    t.checkExpect(loaded.reach.radius, e.reach.radius);
+    t.checkExpect(loaded.stationReach, e.stationReach);
+    t.checkExpect(loaded.radius, e.radius);
+    // cells put in place of the board keep nothing of the one before
+    GameEngine small = new GameEngine(3, 3, new KruskalGenerator(), null, 2L);
+    small.click(4);
+    small.use(e.cells, 0);
+    t.checkExpect(small.history.canUndo(), false);
+    t.checkExpect(small.reach.diameter, e.reach.diameter);
+    t.checkExpect(small.stationReach, e.stationReach);
+    t.checkExpect(small.radius, e.radius);
+    t.checkExpect(small.difficulty.clicks, e.difficulty.clicks);
+  }
+
+  // the view hears about every cell that changes, and about each new board
+  void testView(Tester t) {
+    GameEngine e = new GameEngine(5, 5, new KruskalGenerator(), null, 4L);
+    RecordingView v = new RecordingView();
+    e.view = v;
+    e.rotate(12);
+    t.checkExpect(v.cells, new java.util.ArrayList<Integer>(java.util.Arrays.asList(12)));
+    t.checkExpect(v.powers.contains(12), true);
+    e.restart(new PrimGenerator(), 4L);
+    t.checkExpect(v.boards, 1);
+    t.checkExpect(e.moves, 0);
+    t.checkExpect(e.history.canUndo(), false);
+    t.checkExpect(e.generator.name(), "prim");
+  }
+}
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.awt.Color;
+import javalib.worldimages.*;
+
+class GamePiece {
+  // in logical coordinates, with the origin
+  // at the top-left corner of the screen
+  int row;
+  int col;
+  // whether this GamePiece is connected to the
+  // adjacent left, right, top, or bottom pieces
+  boolean left;
+  boolean right;
+  boolean top;
+  boolean bottom;
+  // whether the power station is on this piece
+  boolean powerStation;
+  int size = 40;
+  ArrayList<GamePiece> neighbors;
+  boolean isPowered; // does this piece have power?
+  int distance;
+  Color color;
+
+  // Test Constructor 
+  GamePiece(int row, int col, boolean left, boolean right, 
+      boolean top, boolean bottom, boolean powerStation, boolean isPowered) {
+    this.row = row;
+    this.col = col;
+    this.left = left;
+    this.right = right;
+    this.top = top;
+    this.bottom = bottom;
+    this.powerStation = powerStation;
+    this.isPowered = isPowered;
+
+  }
+
+  // draws the power source
+  WorldImage drawPowerSource() {
+    return new OverlayImage(new CircleImage(6, OutlineMode.SOLID, Color.MAGENTA), 
+        new StarImage(20, OutlineMode.SOLID, Color.BLUE));
+  }
+
+  //draws a wire
+  WorldImage drawWire(int x, int y) {
+    return new RectangleImage(x, y, OutlineMode.SOLID, this.color);
+  }
+
+  // draws this game piece, sharing the game's image of every tile like it
+  // as long as its color comes from the game's palette
+  WorldImage draw(LightEmAll game) {
+    TileCache tiles = game.tiles();
+    int shade = tiles.shade(this);
+    if (tiles.size == this.size && tiles.palette[shade] == this.color) {
+      return tiles.tile(this.mask(), shade);
+    }
+    return this.drawTile();
+  }
+
+  // draws a fresh image of this game piece
+  WorldImage drawTile() {
+    WorldImage background = new RectangleImage(this.size, this.size, 
+        OutlineMode.SOLID, Color.DARK_GRAY);
+
+    WorldImage border = new RectangleImage(this.size, this.size, 
+        OutlineMode.OUTLINE, Color.BLACK);
+
+    // thickness of wire one twenty-second the size of game piece, length one half
+    if (this.top) {      
+      background = new OverlayImage(this.drawWire(this.size / 22, 
+          this.size / 2).movePinholeTo(new Posn(0, this.size / 4)), 
+          background);         
+    }
+
+    if (this.bottom) {
+      background = new OverlayImage(this.drawWire(this.size / 22, 
+          this.size / 2).movePinholeTo(new Posn(0, (-1) * (this.size / 4))), 
+          background);
+    }
+
+    if (this.left) {
+      background = new OverlayImage(this.drawWire(this.size / 2, 
+          this.size / 22).movePinholeTo(new Posn((this.size / 4), 0)), 
+          background);
+    }
+
+    if (this.right) {
+      background = new OverlayImage(this.drawWire(this.size / 2, 
+          this.size / 22).movePinholeTo(new Posn((-1) * (this.size / 4), 0)), 
+          background);
+    }
+
+    // only one game piece should have the power station
+    if (this.powerStation) {
+      background = new OverlayImage(this.drawPowerSource(), background);
+    }
+
+    return new OverlayImage(border, background);
+  }
+
+  // set color of GamePiece wiring based on powered and power fields
+  public Color changeColor(int radius) {
+    if (!this.isPowered || this.distance <= 0) {
+      this.color = Color.GRAY;
+    }
+    else if (this.distance <= radius) {
+      this.color = TileCache.palette(radius)[this.distance];
+    }
+    else {
+      this.color = TileCache.shadeColor(radius, this.distance);
+    }
+    return this.color;
+  }
+
+  // the wires and power station of this game piece as a packed board mask
+  int mask() {
+    int mask = 0;
+    if (this.top) {
+      mask = mask | PackedBoard.TOP;
+    }
+    if (this.right) {
+      mask = mask | PackedBoard.RIGHT;
+    }
+    if (this.bottom) {
+      mask = mask | PackedBoard.BOTTOM;
+    }
+    if (this.left) {
+      mask = mask | PackedBoard.LEFT;
+    }
+    if (this.powerStation) {
+      mask = mask | PackedBoard.STATION;
+    }
+    return mask;
+  }
+
+  // checks if two game pieces are the same based on their coordinates
+  public boolean sameNode(GamePiece g) {
+    return this.row == g.row && this.col == g.col;
+  }
+}
@@ -0,0 +1,45 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+// times every board generator on one large board, then the parallel generator
+// on 1 up to N cores to show how it scales
+//
+// usage: java GeneratorBenchmark [size] [repetitions]
+class GeneratorBenchmark {
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int reps = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    int cores = Runtime.getRuntime().availableProcessors();
+    System.out.println("board " + size + "x" + size + ", best of " + reps + ", "
+        + cores + " cores");
+
+    IBoardGenerator[] generators = {new KruskalGenerator(), new PrimGenerator(),
+        new WilsonGenerator(), new DepthFirstGenerator(), new DivisionGenerator()};
+    for (IBoardGenerator g : generators) {
+      System.out.printf("%-10s %8.1f ms%n", g.name(), best(g, size, reps) / 1e6);
+    }
+
+    double single = 0;
+    for (int p = 1; p <= cores; p++) {
+      ForkJoinPool pool = new ForkJoinPool(p);
+      double nanos = best(new ParallelGenerator(pool), size, reps);
+      pool.shutdown();
+      if (p == 1) {
+        single = nanos;
+      }
+      System.out.printf("parallel x%-2d %8.1f ms  speedup %.2f%n", p, nanos / 1e6, single / nanos);
+    }
+  }
+
+  // the fastest of the given number of runs of the given generator, after one to warm up
+  static double best(IBoardGenerator g, int size, int reps) {
+    PackedBoard board = new PackedBoard(size, size);
+    g.generate(board, new SplittableRandom());
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < reps; r++) {
+      g.generate(board, new SplittableRandom());
+      best = Math.min(best, g.lastNanos());
+    }
+    return best;
+  }
+}
@@ -0,0 +1,140 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import tester.*;
+
+class ExamplesGenerators {
+  IBoardGenerator[] generators = {new KruskalGenerator(), new PrimGenerator(),
+      new WilsonGenerator(), new DepthFirstGenerator(), new DivisionGenerator(),
+      new ParallelGenerator()};
+
+  // is every wire on the given board matched by its neighbor,
+  // with exactly enough wires to connect every cell without a loop
+  boolean isSpanningTree(PackedBoard b) {
+    int edges = 0;
+    for (int i = 0; i < b.size(); i++) {
+      for (int dir : PowerField.DIRS) {
+        if (b.has(i, dir) && !b.connected(i, dir)) {
+          return false;
+        }
+        if (b.connected(i, dir)) {
+          edges = edges + 1;
+        }
+      }
+    }
+    PowerField reach = new PowerField(b, 0);
+    for (int i = 0; i < b.size(); i++) {
+      if (!reach.isConnected(i)) {
+        return false;
+      }
+    }
+    return edges == 2 * (b.size() - 1);
+  }
+
+  void testSpanningTrees(Tester t) {
+    int[][] sizes = {{1, 1}, {1, 6}, {6, 1}, {2, 2}, {5, 5}, {8, 3}, {17, 23}};
+    for (IBoardGenerator g : this.generators) {
+      for (int[] size : sizes) {
+        PackedBoard b = new PackedBoard(size[0], size[1]);
+        g.generate(b, new SplittableRandom(size[0] * 31 + size[1]));
+        t.checkExpect(this.isSpanningTree(b), true, g.name());
+        t.checkExpect(g.lastNanos() > 0, true);
+      }
+    }
+  }
+
+  void testSeededGenerators(Tester t) {
+    for (IBoardGenerator g : this.generators) {
+      PackedBoard a = new PackedBoard(40, 30);
+      PackedBoard b = new PackedBoard(40, 30);
+      g.generate(a, new SplittableRandom(42));
+      g.generate(b, new SplittableRandom(42));
+      t.checkExpect(java.util.Arrays.equals(a.cells, b.cells), true, g.name());
+    }
+  }
+
+  void testParallelDeterministic(Tester t) {
+    PackedBoard a = new PackedBoard(300, 200);
+    PackedBoard b = new PackedBoard(300, 200);
+    new ParallelGenerator(new ForkJoinPool(1)).generate(a, new SplittableRandom(7));
+    new ParallelGenerator(new ForkJoinPool(4)).generate(b, new SplittableRandom(7));
+    t.checkExpect(java.util.Arrays.equals(a.cells, b.cells), true);
+  }
+
+  void testParallelLargeBoard(Tester t) {
+    PackedBoard b = new PackedBoard(300, 200);
+    new ParallelGenerator(new ForkJoinPool(3)).generate(b, new SplittableRandom(5));
+    t.checkExpect(this.isSpanningTree(b), true);
+  }
+
+  void testParallelRange(Tester t) {
+    int[] counts = new int[20000];
+    ParallelRange.run(new ForkJoinPool(4), counts.length, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        counts[i] = counts[i] + 1;
+      }
+    });
+    int total = 0;
+    for (int c : counts) {
+      total = total + c;
+    }
+    t.checkExpect(total, 20000);
+  }
+
+  void testGenerateReplacesWires(Tester t) {
+    PackedBoard b = new PackedBoard(4, 4);
+    new DivisionGenerator().generate(b, new SplittableRandom(1));
+    new DepthFirstGenerator().generate(b, new SplittableRandom(2));
+    t.checkExpect(this.isSpanningTree(b), true);
+  }
+
+  void testKruskalMST(Tester t) {
+    KruskalGenerator k = new KruskalGenerator();
+    k.getAllEdges(5, 5, new SplittableRandom(3));
+    k.kruskalMST();
+    t.checkExpect(k.mstSize, 24);
+  }
+
+  void testGetAllEdges(Tester t) {
+    KruskalGenerator k = new KruskalGenerator();
+    k.getAllEdges(5, 5, new SplittableRandom(3));
+    EdgeList edges = k.edgesInGraph;
+    t.checkExpect(edges.count(), 40);
+    t.checkExpect(EdgeList.from(edges.ids[0]), 0);
+    t.checkExpect(edges.to(edges.ids[0]), 1);
+    t.checkExpect(EdgeList.from(edges.ids[1]), 0);
+    t.checkExpect(edges.to(edges.ids[1]), 5);
+  }
+
+  void testRandomizeEdges(Tester t) {
+    KruskalGenerator k = new KruskalGenerator();
+    k.getAllEdges(5, 5, new SplittableRandom(3));
+    k.randomizeEdges(new SplittableRandom(4));
+    for (int id : k.edgesInGraph.ids) {
+      if (EdgeList.isVertical(id)) {
+        t.checkExpect(k.edgesInGraph.weights[id] < 40, true);
+      }
+      else {
+        t.checkExpect(k.edgesInGraph.weights[id] < 80, true);
+      }
+    }
+  }
+
+  void testSortEdges(Tester t) {
+    KruskalGenerator k = new KruskalGenerator();
+    k.getAllEdges(5, 5, new SplittableRandom(3));
+    k.sortEdges();
+    EdgeList edges = k.edgesInGraph;
+    t.checkExpect(edges.count(), 40);
+    for (int j = 1; j < edges.count(); j++) {
+      t.checkExpect(edges.weights[edges.ids[j - 1]] <= edges.weights[edges.ids[j]], true);
+    }
+  }
+
+  void testInitializeReps(Tester t) {
+    KruskalGenerator k = new KruskalGenerator();
+    k.getAllEdges(5, 5, new SplittableRandom(3));
+    k.initializeReps();
+    t.checkExpect(k.representatives.find(0), 0);
+    t.checkExpect(k.representatives.find(5), 5);
+  }
+}
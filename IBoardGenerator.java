@@ -0,0 +1,13 @@
+import java.util.SplittableRandom;
+
+// lays out the wires of a packed board as a spanning tree of its cells
+interface IBoardGenerator {
+  // replaces the wires of the given board with a spanning tree of its cells
+  void generate(PackedBoard board, SplittableRandom rand);
+
+  // how long the last call to generate took, in nanoseconds
+  long lastNanos();
+
+  // the name of this way of generating boards
+  String name();
+}
@@ -0,0 +1,17 @@
+// what a view of the game is told as the engine changes the board, so it can keep
+// its own pieces in step without looking at every cell
+interface IGameView {
+  // the engine has a whole new board, of the same size or not
+  void boardChanged();
+
+  // the wires or the power station of the cell at the given index changed
+  void cellChanged(int i);
+
+  // how far the cell at the given index is from the power station may have changed
+  void powerChanged(int i);
+
+  // the power station moved, so how far every cell is from it may have changed; the
+  // engine settles that only when asked, so a view should ask once it needs it,
+  // not once for every move
+  void stationMoved();
+}
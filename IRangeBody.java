@@ -0,0 +1,5 @@
+// the body of a loop over a range of indices
+interface IRangeBody {
+  // runs this loop over the indices from the first up to but not including the second
+  void run(int from, int to);
+}
@@ -0,0 +1,84 @@
+import java.util.SplittableRandom;
+
+// Kruskal's algorithm over randomly weighted edges,
+// biased towards vertical wires
+class KruskalGenerator extends ABoardGenerator {
+  // every edge of the board with its random weight
+  EdgeList edgesInGraph;
+  // the disjoint sets of cells joined so far while building the spanning tree
+  DisjointSet representatives;
+  // the ids of the edges in the minimum spanning tree
+  int[] mst;
+  int mstSize;
+
+  public String name() {
+    return "kruskal";
+  }
+
+  void layout(PackedBoard board, SplittableRandom rand) {
+    this.getAllEdges(board.width, board.height, rand);
+    this.kruskalMST();
+    this.changeWires(board);
+  }
+
+  // finds all of the valid edges in a graph of the given size
+  void getAllEdges(int width, int height, SplittableRandom rand) {
+    long start = Metrics.start();
+    this.edgesInGraph = new EdgeList(width, height);
+    this.randomizeEdges(rand);
+    Metrics.phase(Metrics.GET_ALL_EDGES, start);
+  }
+
+  // randomizes the weights for each edge
+  void randomizeEdges(SplittableRandom rand) {
+    this.edgesInGraph.randomize(rand);
+  }
+
+  // sorts the edges based on weight from smallest to largest
+  void sortEdges() {
+    this.edgesInGraph.sort();
+  }
+
+  // initializes each cell's representative to itself
+  void initializeReps() {
+    this.representatives = new DisjointSet(this.edgesInGraph.width * this.edgesInGraph.height);
+  }
+
+  // finds the minimum spanning tree of a graph
+  // that minimizes edge weights via Kruskal's algorithm
+  void kruskalMST() {
+    long start = Metrics.start();
+    this.sortEdges();
+    this.initializeReps();
+
+    // minimum spanning tree has n - 1 edges for graph with n nodes
+    int n = this.edgesInGraph.width * this.edgesInGraph.height;
+    this.mst = new int[n - 1];
+    this.mstSize = 0;
+    for (int id : this.edgesInGraph.ids) {
+      if (this.mstSize == n - 1) {
+        break;
+      }
+      // does not add edge if it would create cycle
+      if (this.representatives.union(EdgeList.from(id), this.edgesInGraph.to(id))) {
+        this.mst[this.mstSize] = id;
+        this.mstSize = this.mstSize + 1;
+      }
+    }
+    Metrics.count(Metrics.UNION_FIND_LOOKUPS, this.representatives.lookups);
+    Metrics.phase(Metrics.KRUSKAL_MST, start);
+  }
+
+  // adds the wires of the minimum spanning tree to the given board
+  void changeWires(PackedBoard board) {
+    for (int k = 0; k < this.mstSize; k++) {
+      int id = this.mst[k];
+      if (EdgeList.isVertical(id)) {
+        join(board, EdgeList.from(id), PackedBoard.BOTTOM);
+      }
+      else {
+        join(board, EdgeList.from(id), PackedBoard.RIGHT);
+      }
+    }
+  }
+}
@@ -1,688 +1,8 @@
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Arrays;
 import tester.*;
-import javalib.impworld.*;
 import java.awt.Color;
 import javalib.worldimages.*;
-import java.util.Random;
-
-
-class GamePiece {
-  // in logical coordinates, with the origin
-  // at the top-left corner of the screen
-  int row;
-  int col;
-  // whether this GamePiece is connected to the
-  // adjacent left, right, top, or bottom pieces
-  boolean left;
-  boolean right;
-  boolean top;
-  boolean bottom;
-  // whether the power station is on this piece
-  boolean powerStation;
-  int size = 40;
-  ArrayList<GamePiece> neighbors;
-  boolean isPowered; // does this piece have power?
-  int distance;
-  Color color;
-
-  // Test Constructor 
-  GamePiece(int row, int col, boolean left, boolean right, 
-      boolean top, boolean bottom, boolean powerStation, boolean isPowered) {
-    this.row = row;
-    this.col = col;
-    this.left = left;
-    this.right = right;
-    this.top = top;
-    this.bottom = bottom;
-    this.powerStation = powerStation;
-    this.isPowered = isPowered;
-
-  }
-
-  // draws the power source
-  WorldImage drawPowerSource() {
-    return new OverlayImage(new CircleImage(6, OutlineMode.SOLID, Color.MAGENTA), 
-        new StarImage(20, OutlineMode.SOLID, Color.BLUE));
-  }
-
-  //draws a wire
-  WorldImage drawWire(int x, int y) {
-    return new RectangleImage(x, y, OutlineMode.SOLID, this.color);
-  }
-
-  // draws this game piece
-  WorldImage draw(LightEmAll game) {
-    WorldImage background = new RectangleImage(this.size, this.size, 
-        OutlineMode.SOLID, Color.DARK_GRAY);
-
-    WorldImage border = new RectangleImage(this.size, this.size, 
-        OutlineMode.OUTLINE, Color.BLACK);
-
-    // thickness of wire one twenty-second the size of game piece, length one half
-    if (this.top) {      
-      background = new OverlayImage(this.drawWire(this.size / 22, 
-          this.size / 2).movePinholeTo(new Posn(0, this.size / 4)), 
-          background);         
-    }
-
-    if (this.bottom) {
-      background = new OverlayImage(this.drawWire(this.size / 22, 
-          this.size / 2).movePinholeTo(new Posn(0, (-1) * (this.size / 4))), 
-          background);
-    }
-
-    if (this.left) {
-      background = new OverlayImage(this.drawWire(this.size / 2, 
-          this.size / 22).movePinholeTo(new Posn((this.size / 4), 0)), 
-          background);
-    }
-
-    if (this.right) {
-      background = new OverlayImage(this.drawWire(this.size / 2, 
-          this.size / 22).movePinholeTo(new Posn((-1) * (this.size / 4), 0)), 
-          background);
-    }
-
-    // only one game piece should have the power station
-    if (this.powerStation) {
-      background = new OverlayImage(this.drawPowerSource(), background);
-    }
-
-    return new OverlayImage(border, background);
-  }
-
-  // set color of GamePiece wiring based on powered and power fields
-  public Color changeColor(int radius) {
-    if (!this.isPowered || this.distance <= 0) {
-      this.color = Color.GRAY;
-    }
-    else {
-      this.color = new Color(255 - ((radius - this.distance) * 50 / radius),
-          255 - ((radius - this.distance) * 200 / radius), 100);
-    }
-    return this.color;
-  }
-
-  // checks if two game pieces are the same based on their coordinates
-  public boolean sameNode(GamePiece g) {
-    return this.row == g.row && this.col == g.col;
-  }
-}
-
-class Edge {
-  GamePiece fromNode;
-  GamePiece toNode;
-  int weight;
-
-  Edge(GamePiece fromNode, GamePiece toNode) {
-    this.fromNode = fromNode;
-    this.toNode = toNode;
-  }
-}
-
-
-class LightEmAll extends World {
-  // a list of columns of GamePieces,
-  // i.e., represents the board in column-major order
-  ArrayList<ArrayList<GamePiece>> board;
-  // a list of all nodes
-  ArrayList<GamePiece> nodes;
-  // a list of edges of the minimum spanning tree
-  ArrayList<Edge> mst;
-  // the width and height of the board
-  int width;
-  int height;
-  Integer time;
-  Integer moves;
-  // the current location of the power station,
-  // as well as its effective radius
-  int powerRow;
-  int powerCol;
-  int radius;
-  HashMap<GamePiece, GamePiece> representatives;
-  ArrayList<Edge> edgesInGraph;
-
-
-  LightEmAll(int width, int height) {
-    this.width = width;
-    this.height = height;
-    this.radius = this.width;
-    this.time = 0;
-    this.moves = 0;
-    this.board = new ArrayList<ArrayList<GamePiece>>();
-    this.nodes = new ArrayList<GamePiece>();
-    this.mst = new ArrayList<Edge>();
-    this.representatives = new HashMap<GamePiece, GamePiece>();
-    this.edgesInGraph = new ArrayList<Edge>();
-    this.createBoard();
-    this.createNodeList();
-    this.getAllEdges();
-    this.initializeReps();
-    this.kruskalMST();
-    this.changeWires();
-    this.initNeighbors();
-    this.setDefaults();
-  }
-
-
-  //initializes the list of neighbors for each game piece
-  public void initNeighbors() {
-
-    for (ArrayList<GamePiece> col: board) {
-
-      for (GamePiece g : col) {
-        g.neighbors = new ArrayList<GamePiece>();
-
-        if (g.left && g.col > 0) {
-          GamePiece n = this.board.get(g.col - 1).get(g.row); 
-          g.neighbors.add(n);
-        }
-
-        if (g.right && g.col < this.width - 1) {
-          GamePiece n = this.board.get(g.col + 1).get(g.row); 
-          g.neighbors.add(n);
-        }
-
-        if (g.top && g.row > 0) {
-          GamePiece n = this.board.get(g.col).get(g.row - 1);
-          g.neighbors.add(n);
-        }
-
-        if (g.bottom && g.row < this.height - 1) {
-          GamePiece n = this.board.get(g.col).get(g.row + 1); 
-          g.neighbors.add(n);
-        }
-      }
-    }
-  }
-
-
-  // draws the game board
-  public WorldScene makeScene() {
-    WorldScene scene = this.getEmptyScene();
-    WorldImage game = new EmptyImage();
-    WorldImage movesInfo = 
-        new OverlayImage(new TextImage("Moves: " + this.moves.toString(), Color.BLACK), 
-            new RectangleImage(this.width * 40, 40, OutlineMode.SOLID, 
-                Color.DARK_GRAY).movePinholeTo(new Posn((-10) * this.width, 
-                    0))).movePinholeTo(new Posn(10 * this.width, 0));
-
-    WorldImage info = new OverlayImage(new TextImage("Time: " + this.time.toString(), 
-        Color.BLACK), movesInfo).movePinholeTo(new Posn(0, 0));
-    WorldImage button = new CircleImage(15, OutlineMode.SOLID, Color.RED);
-    WorldImage startOver = new OverlayImage(new TextImage("end", Color.BLACK), button);
-    WorldImage topBar = new OverlayImage(startOver, info);
-
-    for (ArrayList<GamePiece> col : this.board) {
-
-      WorldImage line = new EmptyImage();
-      for (GamePiece g: col) {
-        line = new AboveImage(line, g.draw(this));
-      }
-
-      game = new BesideAlignImage(AlignModeY.MIDDLE, game, line);
-
-    }
-    game = new AboveImage(topBar, game);
-    game.movePinholeTo(new Posn(this.width * 20, this.height * 20 + 20));
-    scene.placeImageXY(game, this.width * 20, this.height * 20 + 20);
-    return scene;
-  }
-
-
-  // creates an ArrayList of an ArrayList of game pieces
-  public void createBoard() {
-    for (int j = 0; j < this.width; j++) {
-      ArrayList<GamePiece> col = new ArrayList<GamePiece>();
-      if (j == 0) {
-        col = this.makeCol(j, false, false, false, false, true);
-      }
-      else {
-        col = this.makeCol(j, false, false, false, false, false);
-      }
-      this.board.add(col);
-    }
-  }
-
-
-  // makes a column of game pieces
-  public ArrayList<GamePiece> makeCol(int j, boolean left, boolean right, 
-      boolean top, boolean bottom, boolean powerStation) {
-    ArrayList<GamePiece> col = new ArrayList<GamePiece>();
-    for (int i = 0; i < this.height; i++) {
-      if (i == 0 && powerStation) {
-        col.add(new GamePiece(i, j, left, right, top, bottom, true, false));
-        this.powerCol = 0;
-        this.powerRow = 0;
-      }
-      else {
-        col.add(new GamePiece(i, j, left, right, top, bottom, false, false));
-      }
-    }
-    return col;
-  }
-
-  // finds all of the valid edges in the graph
-  public void getAllEdges() {
-    for (int j = 0; j < this.width; j++) {
-      for (int i = 0; i < this.height; i++) {
-
-
-        if ((j == 0 && i == 0) || (j == 0 && i != 0 && i != this.height - 1)
-            || (j != 0 && j != this.width - 1 && i == 0) 
-            || (j != 0 && j != this.width - 1 && i != 0 && i != this.height - 1)) {
-          Edge e1 = new Edge(this.board.get(j).get(i), this.board.get(j).get(i + 1));
-          Edge e2 = new Edge(this.board.get(j).get(i), this.board.get(j + 1).get(i));
-
-          this.edgesInGraph.add(e1);
-          this.edgesInGraph.add(e2);
-        }
-
-        if ((j == 0 && i == this.height - 1) 
-            || (j != 0 && j != this.width - 1 && i == this.height - 1)) {
-          Edge e1 = new Edge(this.board.get(j).get(i), this.board.get(j + 1).get(i));
-
-          this.edgesInGraph.add(e1);
-
-        }
-
-        if ((j == this.width - 1 && i == 0) 
-            || j == this.width - 1 && i != 0 && i != this.height - 1) {
-          Edge e1 = new Edge(this.board.get(j).get(i), this.board.get(j).get(i + 1));
-
-          this.edgesInGraph.add(e1);
-        }
-
-      }
-    }
-    this.randomizeEdges();
-  }
-
-  // randomizes the weights for each edge
-  public void randomizeEdges() {
-    for (Edge e : edgesInGraph) {
-      // preference for vertical wires: range of random numbers 
-      //for weights is smaller for vertical than horizontal
-      if (java.lang.Math.abs(e.fromNode.row - e.toNode.row) == 1) {
-        e.weight = new Random().nextInt(40);
-      }
-      else {
-        e.weight = new Random().nextInt(80);
-
-      }
-    }
-  }
-
-  // sorts the edges based on weight from smallest to largest
-  public <T> void sortEdges(ICompare<T> comp) {
-    // Create a temporary array
-    ArrayList<Edge> temp = new ArrayList<Edge>();
-
-    // Make sure the temporary array is exactly as big as the given array
-    for (int i = 0; i < this.edgesInGraph.size(); i = i + 1) {
-      temp.add(this.edgesInGraph.get(i));
-    }
-    sortEdgesHelp(edgesInGraph, temp, comp, 0, edgesInGraph.size());
-  }
-
-  // sorts both halves of list and then merges them
-  public <T> void sortEdgesHelp(ArrayList<Edge> source, ArrayList<Edge> temp, ICompare<T> comp,
-      int loIdx, int hiIdx) {
-    // Step 0: stop when finished
-    if (hiIdx - loIdx <= 1) {
-      return; // nothing to sort
-    }
-    // Step 1: find the middle index
-    int midIdx = (loIdx + hiIdx) / 2;
-    // Step 2: recursively sort both halves
-    sortEdgesHelp(source, temp, comp, loIdx, midIdx);
-    sortEdgesHelp(source, temp, comp, midIdx, hiIdx);
-    // Step 3: merge the two sorted halves
-    mergeEdges(source, temp, comp, loIdx, midIdx, hiIdx);
-  }
-
-  // merges two sorted halves together
-  public <T> void mergeEdges(ArrayList<Edge> source, ArrayList<Edge> temp, ICompare<T> comp, 
-      int loIdx, int midIdx, int hiIdx) {
-    int curLo = loIdx;   // where to start looking in the lower half-list
-    int curHi = midIdx;  // where to start looking in the upper half-list
-    int curCopy = loIdx; // where to start copying into the temp storage
-
-    while (curLo < midIdx && curHi < hiIdx) {
-      if (comp.apply(source.get(curLo).weight, source.get(curHi).weight)) {
-        // the value at curLo is smaller, so it comes first
-        temp.set(curCopy, source.get(curLo));
-        curLo = curLo + 1; // advance the lower index
-      }
-      else {
-        // the value at curHi is smaller, so it comes first
-        temp.set(curCopy, source.get(curHi));
-        curHi = curHi + 1; // advance the upper index
-      }
-      curCopy = curCopy + 1; // advance the copying index
-    }
-
-    // copy everything that's left -- at most one of the two half-lists still has items in it
-    while (curLo < midIdx) {
-      temp.set(curCopy, source.get(curLo));
-      curLo = curLo + 1;
-      curCopy = curCopy + 1;
-    }
-
-    while (curHi < hiIdx) {
-      temp.set(curCopy, source.get(curHi));
-      curHi = curHi + 1;
-      curCopy = curCopy + 1;
-    }
-
-    // copy everything back from temp into source
-    for (int i = loIdx; i < hiIdx; i = i + 1) {
-      source.set(i, temp.get(i));
-    }
-  }
-
-  // initializes each game pieces representative to itself
-  public void initializeReps() {
-    for (GamePiece g: this.nodes) {
-      this.representatives.put(g, g);
-    }
-  }
-
-  // finds the minimum spanning tree of a graph 
-  // that minimizes edge weights via Kruskal's algorithm
-  public void kruskalMST() {
-    this.sortEdges(new CompareEdges());
-
-    // minimum spanning tree has n - 1 edges for graph with n nodes
-    while (this.mst.size() < this.nodes.size() - 1) {
-
-      for (Edge e: this.edgesInGraph) {
-        if (this.find(e.fromNode).sameNode(this.find(e.toNode))) {
-          // does not add edge if it would create cycle
-
-        }
-        else {
-          this.mst.add(e);
-          this.union(e.fromNode, e.toNode);
-        }
-      }
-    }
-  }
-
-  // returns the representative of a given game piece
-  public GamePiece find(GamePiece g) {
-    if (g.sameNode(this.representatives.get(g))) {
-      return g;
-    }
-    else {
-      return this.find(this.representatives.get(g));
-    }
-  }
-
-  // changes the representative of g2 to the representative
-  // of g1
-  public void union(GamePiece g1, GamePiece g2) {
-    this.representatives.put(g2, g1);
-  }
-
-  // changes the connection values of the game pieces
-  // based on the edges in the minimum spanning tree
-  public void changeWires() {
-
-    for (Edge e: this.mst) {
-
-      if (e.fromNode.row > e.toNode.row) {
-        e.fromNode.top = true;
-        e.toNode.bottom = true;
-      }
-
-      if (e.toNode.row > e.fromNode.row) {
-        e.fromNode.bottom = true;
-        e.toNode.top = true;
-      }
-
-      if (e.toNode.col > e.fromNode.col) {
-        e.fromNode.right = true;
-        e.toNode.left = true;
-      }
-
-      if (e.fromNode.col > e.toNode.col) {
-        e.fromNode.left = true;
-        e.toNode.right = true;
-      }
-    }
-  }
-
-  // adds all of the game pieces into an ArrayList of game pieces
-  public void createNodeList() {
-    for (ArrayList<GamePiece> col: this.board) {
-      for (GamePiece g: col) {
-        this.nodes.add(g);
-      }
-    }
-  }
-
-  // rotates the game piece clockwise with each click
-  public void onMouseClicked(Posn mousePosn, String button) {
-    if (button.equals("LeftButton") && mousePosn.y > 40) {
-
-      this.moves = this.moves + 1;
-
-      GamePiece temp = this.board.get(mousePosn.x / 40).get((mousePosn.y / 40) - 1);
-      GamePiece holder = new GamePiece(temp.row, temp.col, temp.left, 
-          temp.right, temp.top, temp.bottom, temp.powerStation, temp.isPowered);
-
-      if (temp.top) {
-        temp.right = true;
-      }
-      if (temp.right) {
-        temp.bottom = true;
-      }
-      if (temp.bottom) {
-        temp.left = true;
-      }
-      if (temp.left) {
-        temp.top = true;
-      }
-
-      if (!holder.top) {
-        temp.right = false;
-      }      
-      if (!holder.right) {
-        temp.bottom = false;
-      }
-      if (!holder.bottom) {
-        temp.left = false;
-      }
-      if (!holder.left) {
-        temp.top = false;
-      }
-
-      this.initNeighbors();
-
-      this.setDefaults();
-    }
-
-    // starts game over when red button is clicked
-    if (button.equals("LeftButton") && (5 < mousePosn.y) && (mousePosn.y < 35)
-        && (((this.width * 20) - 15) < mousePosn.x) && (mousePosn.x < ((this.width * 20) + 15))) {
-      this.board = new ArrayList<ArrayList<GamePiece>>();
-      this.createBoard();
-      this.createNodeList();
-      this.getAllEdges();
-      this.initializeReps();
-      this.kruskalMST();
-      this.changeWires();
-      this.initNeighbors();
-      this.moves = 0;
-      this.time = 0;
-    }
-
-    this.setDefaults();
-
-  }
-
-  // Set default values for non-power station nodes for color and power
-  // and update based on distance from power station
-  public void setDefaults() {
-    
-    for (GamePiece piece : this.nodes) {
-      piece.isPowered = this.hasPower(piece, new ArrayList<GamePiece>());
-    }
-    
-    ArrayList<GamePiece> seen = new ArrayList<GamePiece>();
-    ArrayList<GamePiece> workList = new ArrayList<GamePiece>();
-    for (GamePiece p : this.nodes) {
-      if (p.powerStation) {
-        p.distance = this.radius;
-        p.color = Color.YELLOW;
-        workList.add(p);
-      }
-      else {
-        p.distance = 0;
-        p.color = Color.GRAY;
-      }
-    }
-    while (workList.size() != 0) {
-      GamePiece p = workList.remove(0);
-      if (!seen.contains(p)) {
-        seen.add(p);
-        ArrayList<GamePiece> neighbors = this.listAllNeighbors(p);
-        for (GamePiece neighbor : neighbors) {
-          if (!seen.contains(neighbor)) {
-            neighbor.distance = p.distance - 1;
-            neighbor.changeColor(this.radius);
-            workList.add(neighbor);
-          }
-        }
-      }
-    }
-  }
-
-  // return list of surrounding GamePieces mutually connected with given GamePiece
-  public ArrayList<GamePiece> listAllNeighbors(GamePiece piece) {
-    ArrayList<GamePiece> neighbors = new ArrayList<GamePiece>();
-
-    if (this.connectLeft(piece)) {
-      neighbors.add(this.board.get(piece.col - 1).get(piece.row));
-    }
-
-    if (this.connectRight(piece)) {
-      neighbors.add(this.board.get(piece.col + 1).get(piece.row));
-    }
-
-    if (this.connectAbove(piece)) {
-      neighbors.add(this.board.get(piece.col).get(piece.row - 1));
-    }
-
-    if (this.connectBelow(piece)) {
-      neighbors.add(this.board.get(piece.col).get(piece.row + 1));
-    }
-
-    return neighbors;
-  }
-
-  // moves the power station based on the keys pressed if there is a valid wire connection
-  public void onKeyEvent(String key) {
-    GamePiece current = this.board.get(this.powerCol).get(this.powerRow);
-
-    boolean left = key.equals("left") && this.powerCol > 0 && current.left 
-        && this.board.get(this.powerCol - 1).get(this.powerRow).right;
-    boolean right = key.equals("right") && this.powerCol < (this.width - 1) && current.right
-        && this.board.get(this.powerCol + 1).get(this.powerRow).left;
-    boolean up = key.equals("up") && this.powerRow > 0 && current.top 
-        && this.board.get(this.powerCol).get(this.powerRow - 1).bottom;
-    boolean down = key.equals("down") && this.powerRow < (this.height - 1) && current.bottom
-        && this.board.get(this.powerCol).get(this.powerRow + 1).top;
-
-    if (left) {
-      current.powerStation = false;
-      this.board.get(this.powerCol - 1).get(this.powerRow).powerStation = true;
-      this.powerCol = this.powerCol - 1;
-      this.setDefaults();
-    }
-
-    if (right) {
-      current.powerStation = false;
-      this.board.get(this.powerCol + 1).get(this.powerRow).powerStation = true;
-      this.powerCol = this.powerCol + 1;
-      this.setDefaults();
-    }
-
-    if (up) {
-      current.powerStation = false;
-      this.board.get(this.powerCol).get(this.powerRow - 1).powerStation = true;
-      this.powerRow = this.powerRow - 1;
-      this.setDefaults();
-    }
-
-    if (down) {
-      current.powerStation = false;
-      this.board.get(this.powerCol).get(this.powerRow + 1).powerStation = true;
-      this.powerRow = this.powerRow + 1;
-      this.setDefaults();
-    }
-  }
-
-
-  // increases the second count by one with each tick
-  public void onTick() {
-    this.time = this.time + 1;
-  }
-
-
-  // is there a path from the power station to the given GamePiece
-  public boolean hasPower(GamePiece piece, ArrayList<GamePiece> seen) {
-    if (!seen.contains(piece)) {
-      seen.add(piece);
-      return (this.connectLeft(piece) 
-          && this.hasPower(this.board.get(piece.col - 1).get(piece.row), seen))
-          || (this.connectRight(piece) 
-              && this.hasPower(this.board.get(piece.col + 1).get(piece.row), seen))
-          || (this.connectAbove(piece) 
-              && this.hasPower(this.board.get(piece.col).get(piece.row - 1), seen))
-          || (this.connectBelow(piece) 
-              && this.hasPower(this.board.get(piece.col).get(piece.row + 1), seen));
-    }
-    return piece.powerStation || seen.contains(this.board.get(this.powerCol).get(this.powerRow));
-  }
-
-  // is this GamePiece connected to the GamePiece to its left
-  public boolean connectLeft(GamePiece p) {
-    return p.left && p.col != 0 && this.board.get(p.col - 1).get(p.row).right;
-  }
-
-  // is this GamePiece connected to the GamePiece to its right
-  public boolean connectRight(GamePiece p) {
-    return p.right && p.col != this.width - 1
-        && this.board.get(p.col + 1).get(p.row).left;
-  }
-
-  // is this GamePiece connected to the GamePiece above
-  public boolean connectAbove(GamePiece p) {
-    return p.top && p.row != 0 && this.board.get(p.col).get(p.row - 1).bottom;
-  }
-
-  // is this GamePiece connected to the GamePiece below
-  public boolean connectBelow(GamePiece p) {
-    return p.bottom && p.row != this.height - 1
-        && this.board.get(p.col).get(p.row + 1).top;
-  }
-}
-
-//represents comparison between two objects of type T
-interface ICompare<T> {
-  boolean apply(int weight, int weight2);
-}
-
-//compares two Instructor objects
-class CompareEdges implements ICompare<Edge> {
-  public boolean apply(int weight1, int weight2) {
-    return (weight1 <= weight2);
-  }
-}
 
 class ExamplesLightGame {
 
@@ -736,7 +56,7 @@ class ExamplesLightGame {
 
   // test BigBang for game
   void testBigBang(Tester t) {
-    LightEmAll startTest = new LightEmAll(8, 8);
+    LightEmAll startTest = new LightEmAll(8, 8, new KruskalGenerator(), new Scrambler(true));
     int worldWidth = 40 * startTest.width;
     int worldHeight = 40 * startTest.height + 40;
     double tickRate = 1.0;
@@ -798,6 +118,7 @@ class ExamplesLightGame {
 
     game.board = new ArrayList<ArrayList<GamePiece>>(Arrays.asList(this.col1, 
         this.col2, this.col2, this.col4, this.col5));
+    game.packBoard();
 
     background = new RectangleImage(40, 40, OutlineMode.SOLID, Color.DARK_GRAY);
 
@@ -858,6 +179,7 @@ class ExamplesLightGame {
 
     game.board = new ArrayList<ArrayList<GamePiece>>(Arrays.asList(this.col1, 
         this.col2, this.col2, this.col4, this.col5));
+    game.packBoard();
 
     background = new RectangleImage(40, 40, OutlineMode.SOLID, Color.DARK_GRAY);
 
@@ -945,13 +267,16 @@ class ExamplesLightGame {
     this.init();
 
     WorldImage drawMovesInfo = 
-        new OverlayImage(new TextImage("Moves: " + game.moves.toString(), Color.BLACK), 
+        new OverlayImage(new TextImage("Moves: " + game.engine.moves, Color.BLACK), 
             new RectangleImage(game.width * 40, 40, OutlineMode.SOLID, 
                 Color.DARK_GRAY).movePinholeTo(new Posn((-10) * game.width, 
                     0))).movePinholeTo(new Posn(10 * game.width, 0));
 
-    WorldImage drawInfo = new OverlayImage(new TextImage("Time: " + game.time.toString(), 
+    WorldImage drawInfo = new OverlayImage(new TextImage("Time: " + game.engine.time, 
         Color.BLACK), drawMovesInfo).movePinholeTo(new Posn(0, 0));
+    drawInfo = new OverlayImage(new TextImage("Level " + game.engine.difficulty.level(),
+        Color.BLACK).movePinholeTo(new Posn(-5 * game.width, 0)), drawInfo)
+        .movePinholeTo(new Posn(0, 0));
     WorldImage drawButton = new CircleImage(15, OutlineMode.SOLID, Color.RED);
     WorldImage drawStartOver = new OverlayImage(
         new TextImage("end", Color.BLACK), drawButton);
@@ -1076,8 +401,8 @@ class ExamplesLightGame {
     t.checkExpect(this.g13.bottom, false);
 
     this.game.onMouseClicked(new Posn(5 * 20, 20), "LeftButton");
-    t.checkExpect(this.game.time, 0);
-    t.checkExpect(this.game.moves, 0);
+    t.checkExpect(this.game.engine.time, 0);
+    t.checkExpect(this.game.engine.moves, 0);
     t.checkExpect(this.g1.left, true);
     t.checkExpect(this.g8.left, false);
     t.checkExpect(this.g11.right, true);
@@ -1103,77 +428,78 @@ class ExamplesLightGame {
     t.checkExpect(this.g6.powerStation, true);
   }
 
+  // a run of station moves reaches the game pieces once, when the frame is drawn
+  void testStationMoved(Tester t) {
+    LightEmAll game = new LightEmAll(6, 6, 3L);
+    GameEngine engine = game.engine;
+    int dir = engine.cells.connectRight(0) ? PackedBoard.RIGHT : PackedBoard.BOTTOM;
+    int to = engine.cells.neighbor(0, dir);
+    game.onKeyEvent(dir == PackedBoard.RIGHT ? "right" : "down");
+    t.checkExpect(game.stationMoved, true);
+    t.checkExpect(game.pieceAt(0).distance, engine.radius);
+    game.syncStation();
+    t.checkExpect(game.stationMoved, false);
+    t.checkExpect(engine.power.tree.lazy, false);
+    t.checkExpect(game.pieceAt(0).distance, engine.radius - 1);
+    t.checkExpect(game.pieceAt(to).color, Color.YELLOW);
+  }
+
   void testOnTick(Tester t) {
     this.init();
 
     this.game.onTick();
-    t.checkExpect(this.game.time, 1);
+    t.checkExpect(this.game.engine.time, 1);
     this.game.onTick();
-    t.checkExpect(this.game.time, 2);
+    t.checkExpect(this.game.engine.time, 2);
 
   }
 
-  void testKruskalMST(Tester t) {
-    this.init();
-
-    this.game.kruskalMST();
-    t.checkExpect(game.mst.size(), 24);
-  }
-
   void testSameNode(Tester t) {
     this.init();
     t.checkExpect(this.g1.sameNode(g2), false);
     t.checkExpect(this.g1.sameNode(g1), true);
   }
 
-  void testFind(Tester t) {
-    this.init();
-    this.game.initializeReps();
-    t.checkExpect(this.game.find(g1), g1);
+  void testSeed(Tester t) {
+    LightEmAll a = new LightEmAll(7, 5, 1234L);
+    LightEmAll b = new LightEmAll(7, 5, 1234L);
+    t.checkExpect(a.engine.seed, 1234L);
+    t.checkExpect(Arrays.equals(a.engine.cells.cells, b.engine.cells.cells), true);
 
+    a.restart(a.engine.generator);
+    t.checkExpect(a.engine.seed == 1234L, false);
+    a.restart(a.engine.generator, 1234L);
+    t.checkExpect(Arrays.equals(a.engine.cells.cells, b.engine.cells.cells), true);
+    t.checkExpect(a.engine.moves, 0);
   }
 
-  void testUnion(Tester t) {
-    this.init();
-
-    this.game.initializeReps();
-    t.checkExpect(this.game.representatives.get(g1), g1);
-    this.game.union(this.g1, this.g2);
-    t.checkExpect(this.game.representatives.get(g2), g1);
+  void testScrambledGame(Tester t) {
+    LightEmAll a = new LightEmAll(9, 7, new KruskalGenerator(), new Scrambler(true), 55L);
+    LightEmAll b = new LightEmAll(9, 7, new KruskalGenerator(), new Scrambler(true), 55L);
+    LightEmAll solved = new LightEmAll(9, 7, 55L);
+    t.checkExpect(Arrays.equals(a.engine.cells.cells, b.engine.cells.cells), true);
+    t.checkExpect(Arrays.equals(a.engine.cells.cells, solved.engine.cells.cells), false);
+    t.checkExpect(a.engine.scrambler.proved, true);
+    t.checkExpect(new Solver(a.engine.cells, a.engine.power.station).second(), null);
+    a.restart(a.engine.generator, 55L);
+    t.checkExpect(Arrays.equals(a.engine.cells.cells, b.engine.cells.cells), true);
   }
 
-  void testInitializeReps(Tester t) {
-    this.init();
-
-    this.game.initializeReps();
-    t.checkExpect(this.game.representatives.get(g1), g1);
-    t.checkExpect(this.game.representatives.get(g6), g6);
+  void testDisjointSet(Tester t) {
+    DisjointSet sets = new DisjointSet(6);
 
+    t.checkExpect(sets.find(4), 4);
+    t.checkExpect(sets.union(0, 1), true);
+    t.checkExpect(sets.union(2, 3), true);
+    t.checkExpect(sets.union(1, 3), true);
+    t.checkExpect(sets.union(0, 2), false);
+    t.checkExpect(sets.find(3), sets.find(0));
+    t.checkExpect(sets.find(5) == sets.find(0), false);
   }
 
-  void testGetAllEdges(Tester t) {
-    this.init();
-
-    this.game.getAllEdges();
-    t.checkExpect(this.game.edgesInGraph.size(), 40);
-    t.checkExpect(this.game.edgesInGraph.get(0), new Edge(g1, g2));
-    t.checkExpect(this.game.edgesInGraph.get(1), new Edge(g1, g6));
-  }
-  
-  void testRandomizeEdges(Tester t) {
-    this.init();
-    
-    this.game.getAllEdges();
-    this.game.randomizeEdges();
-    t.checkExpect(this.game.edgesInGraph.get(0).weight <= 40, true);
-    t.checkExpect(this.game.edgesInGraph.get(1).weight <= 80, true);
-    
-  }
-  
   void testHasPower(Tester t) {
     this.init();
     
-    this.game.initializeReps();
     t.checkExpect(this.game.hasPower(g2, new ArrayList<GamePiece>()), true);
     t.checkExpect(this.game.hasPower(g30, new ArrayList<GamePiece>()), false);
   }
@@ -1181,18 +507,195 @@ class ExamplesLightGame {
   void testConnectLeft(Tester t) {
     this.init();
     
-    this.game.initializeReps();
     t.checkExpect(this.game.connectLeft(g1), false);
     t.checkExpect(this.game.connectLeft(g7), true);
   }
   
+  void testPackBoard(Tester t) {
+    this.init();
+
+    t.checkExpect(this.game.engine.cells.mask(0), PackedBoard.BOTTOM | PackedBoard.STATION);
+    t.checkExpect(this.game.engine.cells.mask(this.game.engine.cells.index(4, 2)),
+        PackedBoard.LEFT | PackedBoard.TOP | PackedBoard.BOTTOM);
+  }
+
+  void testRotateMask(Tester t) {
+    t.checkExpect(PackedBoard.rotateMask(PackedBoard.TOP), PackedBoard.RIGHT);
+    t.checkExpect(PackedBoard.rotateMask(PackedBoard.LEFT), PackedBoard.TOP);
+    t.checkExpect(PackedBoard.rotateMask(PackedBoard.LEFT | PackedBoard.BOTTOM 
+        | PackedBoard.STATION), PackedBoard.LEFT | PackedBoard.TOP | PackedBoard.STATION);
+    t.checkExpect(PackedBoard.opposite(PackedBoard.RIGHT), PackedBoard.LEFT);
+  }
+
+  void testPackedNeighbor(Tester t) {
+    PackedBoard b = new PackedBoard(3, 2);
+
+    t.checkExpect(b.neighbor(0, PackedBoard.TOP), -1);
+    t.checkExpect(b.neighbor(0, PackedBoard.BOTTOM), 1);
+    t.checkExpect(b.neighbor(1, PackedBoard.BOTTOM), -1);
+    t.checkExpect(b.neighbor(1, PackedBoard.RIGHT), 3);
+    t.checkExpect(b.neighbor(5, PackedBoard.RIGHT), -1);
+    t.checkExpect(b.neighbor(5, PackedBoard.LEFT), 3);
+    b.set(1, PackedBoard.RIGHT, true);
+    t.checkExpect(b.connectRight(1), false);
+    b.set(3, PackedBoard.LEFT, true);
+    t.checkExpect(b.connectRight(1), true);
+    t.checkExpect(b.connectLeft(3), true);
+    t.checkExpect(b.connected(3, PackedBoard.LEFT), true);
+  }
+
+  void testSetDefaults(Tester t) {
+    this.init();
+    // a board built by hand keeps the radius of the one it replaced, so give it one
+    this.game.engine.radius = 5;
+
+    this.game.setDefaults();
+    t.checkExpect(this.g1.isPowered, true);
+    t.checkExpect(this.g1.distance, 5);
+    t.checkExpect(this.g1.color, Color.YELLOW);
+    t.checkExpect(this.g2.isPowered, true);
+    t.checkExpect(this.g2.distance, 4);
+    t.checkExpect(this.g2.color, new Color(245, 215, 100));
+    t.checkExpect(this.game.engine.power.hops[this.game.engine.cells.index(1, 1)], 2);
+  }
+
+  void testIncrementalRotate(Tester t) {
+    LightEmAll g = new LightEmAll(6, 6);
+    int[] clicks = {0, 7, 7, 13, 1, 35, 20, 6, 6, 6, 14};
+
+    for (int i : clicks) {
+      g.engine.rotate(i);
+      t.checkExpect(g.engine.power.hops,
+          new PowerField(g.engine.cells, g.engine.power.station).hops);
+    }
+
+    ArrayList<Color> colors = new ArrayList<Color>();
+    ArrayList<Integer> distances = new ArrayList<Integer>();
+    for (GamePiece p : g.nodes) {
+      colors.add(p.color);
+      distances.add(p.distance);
+    }
+    g.setDefaults();
+    for (int i = 0; i < g.nodes.size(); i++) {
+      t.checkExpect(g.nodes.get(i).color, colors.get(i));
+      t.checkExpect(g.nodes.get(i).distance, distances.get(i));
+    }
+  }
+
   void testConnectRight(Tester t) {
     this.init();
     
-    this.game.initializeReps();
     t.checkExpect(this.game.connectRight(g1), false);
     t.checkExpect(this.game.connectRight(g7), false);
   }
 
-
+  // every phase of the pipeline is timed and every event counted as the game is
+  // played through its handlers
+  void testMetrics(Tester t) {
+    Metrics.enable();
+    Metrics.clear();
+    LightEmAll game = new LightEmAll(6, 6, 3L);
+    game.onMouseClicked(new Posn(60, 60), "LeftButton");
+    game.onKeyEvent("down");
+    game.hasPower(game.board.get(5).get(5), new java.util.ArrayList<GamePiece>());
+    MetricsSnapshot s = Metrics.snapshot();
+    Metrics.enabled = false;
+    for (int k = 0; k < Metrics.PHASES.length; k++) {
+      t.checkExpect(s.phaseCalls[k] >= 1, true, Metrics.PHASES[k]);
+    }
+    t.checkExpect(s.phaseCalls[Metrics.KRUSKAL_MST], 1L);
+    t.checkExpect(s.meanNanos(Metrics.KRUSKAL_MST) > 0, true);
+    t.checkExpect(s.eventCalls[Metrics.NEW_BOARD], 1L);
+    t.checkExpect(s.eventCalls[Metrics.CLICK], 1L);
+    t.checkExpect(s.eventCalls[Metrics.KEY], 1L);
+    t.checkExpect(s.bytesPerEvent(Metrics.NEW_BOARD) > 0, Metrics.threads != null);
+    // every one of the 60 edges of a 6x6 board is looked at until the 35 of the
+    // tree are found, and each look finds both its ends
+    t.checkExpect(s.counts[Metrics.UNION_FIND_LOOKUPS] % 2, 0L);
+    t.checkExpect(s.counts[Metrics.UNION_FIND_LOOKUPS] >= 70, true);
+    t.checkExpect(s.counts[Metrics.HAS_POWER_VISITS] >= 1, true);
+  }
+
+  // the game as it stands now, and as it looks once the frame is drawn
+  String state(LightEmAll game) {
+    game.syncStation();
+    StringBuilder s = new StringBuilder(java.util.Arrays.toString(Snapshot.save(game.engine)));
+    s.append(java.util.Arrays.toString(game.engine.power.hops));
+    for (int i = 0; i < game.engine.cells.size(); i++) {
+      GamePiece g = game.pieceAt(i);
+      s.append(g.color).append(g.distance).append(g.neighbors.size());
+    }
+    return s.toString();
+  }
+
+  void testUndoRedo(Tester t) {
+    LightEmAll game = new LightEmAll(8, 7, new KruskalGenerator(), new Scrambler(false), 4L);
+    java.util.SplittableRandom rand = new java.util.SplittableRandom(4);
+    String[] states = new String[41];
+    states[0] = this.state(game);
+    String[] keys = {"left", "right", "up", "down"};
+    for (int k = 1; k <= 40; k++) {
+      if (k % 4 == 0) {
+        // a key that cannot move the station is no move at all
+        int before = game.engine.history.played;
+        game.onKeyEvent(keys[rand.nextInt(4)]);
+        if (game.engine.history.played == before) {
+          game.onMouseClicked(new Posn(20, 60), "LeftButton");
+        }
+      }
+      else {
+        game.onMouseClicked(new Posn(40 * rand.nextInt(8) + 5, 40 * rand.nextInt(7) + 45),
+            "LeftButton");
+      }
+      states[k] = this.state(game);
+    }
+    t.checkExpect(game.engine.history.played, 40);
+    int stationMoves = 0;
+    for (int k = 0; k < 40; k++) {
+      if (MoveHistory.movesStation(game.engine.history.moves[k])) {
+        stationMoves = stationMoves + 1;
+      }
+    }
+    t.checkExpect(stationMoves > 0, true);
+    boolean same = true;
+    for (int k = 39; k >= 0; k--) {
+      game.onKeyEvent("u");
+      same = same && this.state(game).equals(states[k]);
+    }
+    t.checkExpect(same, true);
+    // nothing left to take back
+    game.onKeyEvent("u");
+    t.checkExpect(this.state(game), states[0]);
+    for (int k = 1; k <= 40; k++) {
+      game.onKeyEvent("r");
+      same = same && this.state(game).equals(states[k]);
+    }
+    t.checkExpect(same, true);
+    game.onKeyEvent("r");
+    t.checkExpect(this.state(game), states[40]);
+    // a new board starts a new history
+    game.restart(new KruskalGenerator(), 5L);
+    t.checkExpect(game.engine.history.canUndo(), false);
+  }
+
+  // a game shown from a snapshot looks the same as the game that was saved, once
+  // that has drawn its last frame
+  void testShowSnapshot(Tester t) throws java.io.IOException {
+    LightEmAll game = new LightEmAll(9, 7, new PrimGenerator(), new Scrambler(false), 31L);
+    game.engine.rotate(5);
+    game.onKeyEvent("right");
+    game.onKeyEvent("down");
+    game.onTick();
+    LightEmAll back = new LightEmAll(Snapshot.load(Snapshot.save(game.engine)));
+    game.syncStation();
+    boolean same = true;
+    for (int i = 0; i < game.engine.cells.size(); i++) {
+      GamePiece p = game.pieceAt(i);
+      GamePiece q = back.pieceAt(i);
+      same = same && p.color == q.color && p.isPowered == q.isPowered
+          && p.distance == q.distance && p.powerStation == q.powerStation
+          && p.neighbors.size() == q.neighbors.size();
+    }
+    t.checkExpect(same, true);
+  }
 }
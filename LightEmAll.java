@@ -0,0 +1,469 @@
+import java.util.ArrayList;
+import javalib.impworld.*;
+import java.awt.Color;
+import javalib.worldimages.*;
+
+// shows a GameEngine in a javalib window: each click and key the player makes is
+// handed to the engine, and the game pieces on the screen are brought in step with
+// whatever the engine says changed; none of the rules of the game live here
+class LightEmAll extends World implements IGameView {
+  // the game being shown
+  GameEngine engine;
+  // a list of columns of GamePieces,
+  // i.e., represents the board in column-major order
+  ArrayList<ArrayList<GamePiece>> board;
+  // a list of all nodes
+  ArrayList<GamePiece> nodes;
+  // the width and height of the board
+  int width;
+  int height;
+  // the images of every kind of tile at the current radius
+  TileCache tiles;
+  // the scene from the last frame and the cells that changed since
+  SceneCache scene;
+  // has the power station moved since the pieces last took on the power of every cell
+  boolean stationMoved;
+
+
+  LightEmAll(int width, int height) {
+    this(width, height, new KruskalGenerator());
+  }
+
+  LightEmAll(int width, int height, long seed) {
+    this(width, height, new KruskalGenerator(), seed);
+  }
+
+  LightEmAll(int width, int height, IBoardGenerator generator) {
+    this(width, height, generator, GameEngine.freshSeed());
+  }
+
+  LightEmAll(int width, int height, IBoardGenerator generator, long seed) {
+    this(width, height, generator, null, seed);
+  }
+
+  LightEmAll(int width, int height, IBoardGenerator generator, Scrambler scrambler) {
+    this(width, height, generator, scrambler, GameEngine.freshSeed());
+  }
+
+  LightEmAll(int width, int height, IBoardGenerator generator, Scrambler scrambler,
+      long seed) {
+    this(new GameEngine(width, height, generator, scrambler, seed));
+  }
+
+  // a game of the given board as it stands, with its power station at the given index,
+  // which was laid out from the given seed
+  LightEmAll(PackedBoard cells, int station, int radius, long seed) {
+    this(new GameEngine(cells, station, radius, seed, null));
+  }
+
+  // shows the given game, as far into it as it is
+  LightEmAll(GameEngine engine) {
+    this.engine = engine;
+    this.engine.view = this;
+    this.boardChanged();
+  }
+
+  // builds the game pieces for the engine's board from scratch
+  public void boardChanged() {
+    this.width = this.engine.width;
+    this.height = this.engine.height;
+    this.board = new ArrayList<ArrayList<GamePiece>>();
+    this.nodes = new ArrayList<GamePiece>();
+    this.addColumns();
+    this.createNodeList();
+    this.scene = new SceneCache(this.engine.cells.size());
+    this.changeWires();
+    this.initNeighbors();
+    this.stationMoved = false;
+    for (int i = 0; i < this.engine.cells.size(); i++) {
+      this.syncPower(i);
+    }
+  }
+
+  // copies the wires of the cell at the given index onto its game piece
+  public void cellChanged(int i) {
+    this.syncPiece(i);
+    this.initNeighbors(i);
+  }
+
+  // copies the power of the cell at the given index onto its game piece
+  public void powerChanged(int i) {
+    this.syncPower(i);
+  }
+
+  // notes that the power of every cell may have changed, to be copied onto the game
+  // pieces once, when the next frame is drawn
+  public void stationMoved() {
+    this.stationMoved = true;
+  }
+
+  // copies the power of every cell onto its game piece if the power station moved
+  // since that was last done
+  void syncStation() {
+    if (this.stationMoved) {
+      this.stationMoved = false;
+      this.engine.settle();
+      for (int i = 0; i < this.engine.cells.size(); i++) {
+        this.syncPower(i);
+      }
+    }
+  }
+
+  // packs the wires and power station of every game piece on the board
+  // into a fresh set of cell masks, and has the engine play on those; the power
+  // station stays where it was if a piece there still shows it, and otherwise goes
+  // to the first piece that does
+  public void packBoard() {
+    PackedBoard cells = new PackedBoard(this.width, this.height);
+    int station = -1;
+
+    for (int j = 0; j < this.width; j++) {
+      for (int i = 0; i < this.height; i++) {
+        GamePiece g = this.board.get(j).get(i);
+        int c = cells.index(j, i);
+        cells.set(c, PackedBoard.LEFT, g.left);
+        cells.set(c, PackedBoard.RIGHT, g.right);
+        cells.set(c, PackedBoard.TOP, g.top);
+        cells.set(c, PackedBoard.BOTTOM, g.bottom);
+        cells.set(c, PackedBoard.STATION, g.powerStation);
+        if (g.powerStation && (station < 0 || c == this.engine.station())) {
+          station = c;
+        }
+      }
+    }
+    this.engine.use(cells, Math.max(station, 0));
+    this.scene = new SceneCache(cells.size());
+  }
+
+  // the game piece viewing the cell at the given index
+  GamePiece pieceAt(int i) {
+    PackedBoard cells = this.engine.cells;
+    return this.board.get(cells.col(i)).get(cells.row(i));
+  }
+
+  // copies the mask of the cell at the given index onto its game piece
+  void syncPiece(int i) {
+    GamePiece g = this.pieceAt(i);
+    PackedBoard cells = this.engine.cells;
+    this.scene.mark(i);
+    g.left = cells.has(i, PackedBoard.LEFT);
+    g.right = cells.has(i, PackedBoard.RIGHT);
+    g.top = cells.has(i, PackedBoard.TOP);
+    g.bottom = cells.has(i, PackedBoard.BOTTOM);
+    g.powerStation = cells.has(i, PackedBoard.STATION);
+  }
+
+
+  // the tile images for the current radius, rebuilt whenever the radius changes
+  TileCache tiles() {
+    if (this.tiles == null || !this.tiles.matches(40, this.engine.radius)) {
+      this.tiles = new TileCache(40, this.engine.radius);
+    }
+    return this.tiles;
+  }
+
+  // draws the game board, redrawing only the tiles that changed since the last frame
+  public WorldScene makeScene() {
+    this.syncStation();
+    TileCache tiles = this.tiles();
+    int n = this.engine.cells.size();
+    if (this.scene.needsRedraw(this.engine.radius)) {
+      this.scene.scene = this.getEmptyScene();
+      this.scene.radius = this.engine.radius;
+      this.scene.overlays = 0;
+      this.scene.lastDrawn = n;
+      for (int i = 0; i < n; i++) {
+        this.drawCell(this.scene.scene, tiles, i);
+      }
+    }
+    else {
+      this.scene.lastDrawn = this.scene.dirtyCount;
+      this.scene.overlays = this.scene.overlays + this.scene.dirtyCount + 1;
+      for (int k = 0; k < this.scene.dirtyCount; k++) {
+        this.drawCell(this.scene.scene, tiles, this.scene.dirty[k]);
+      }
+    }
+    this.scene.clear();
+    this.scene.scene.placeImageXY(this.drawTopBar(), this.width * 20, 20);
+    return this.scene.scene;
+  }
+
+  // places the tile at the given index onto the given scene
+  void drawCell(WorldScene scene, TileCache tiles, int i) {
+    scene.placeImageXY(this.pieceAt(i).draw(this),
+        this.engine.cells.col(i) * 40 + 20, this.engine.cells.row(i) * 40 + 60);
+  }
+
+  // draws the bar above the board with the moves, the time, the level of difficulty
+  // and the end button
+  WorldImage drawTopBar() {
+    WorldImage movesInfo = 
+        new OverlayImage(new TextImage("Moves: " + this.engine.moves, Color.BLACK), 
+            new RectangleImage(this.width * 40, 40, OutlineMode.SOLID, 
+                Color.DARK_GRAY).movePinholeTo(new Posn((-10) * this.width, 
+                    0))).movePinholeTo(new Posn(10 * this.width, 0));
+
+    WorldImage info = new OverlayImage(new TextImage("Time: " + this.engine.time, 
+        Color.BLACK), movesInfo).movePinholeTo(new Posn(0, 0));
+    info = new OverlayImage(new TextImage("Level " + this.engine.difficulty.level(),
+        Color.BLACK).movePinholeTo(new Posn(-5 * this.width, 0)), info)
+        .movePinholeTo(new Posn(0, 0));
+    WorldImage button = new CircleImage(15, OutlineMode.SOLID, Color.RED);
+    WorldImage startOver = new OverlayImage(new TextImage("end", Color.BLACK), button);
+    return new OverlayImage(startOver, info);
+  }
+
+
+  // creates an ArrayList of an ArrayList of game pieces,
+  // and has the engine play on what they show
+  public void createBoard() {
+    this.addColumns();
+    this.packBoard();
+  }
+
+  // adds a column of blank game pieces to the board for each column of the game,
+  // with the power station in the top left corner
+  void addColumns() {
+    long start = Metrics.start();
+    for (int j = 0; j < this.width; j++) {
+      ArrayList<GamePiece> col = new ArrayList<GamePiece>();
+      if (j == 0) {
+        col = this.makeCol(j, false, false, false, false, true);
+      }
+      else {
+        col = this.makeCol(j, false, false, false, false, false);
+      }
+      this.board.add(col);
+    }
+    Metrics.phase(Metrics.CREATE_BOARD, start);
+  }
+
+
+  // makes a column of game pieces
+  public ArrayList<GamePiece> makeCol(int j, boolean left, boolean right, 
+      boolean top, boolean bottom, boolean powerStation) {
+    ArrayList<GamePiece> col = new ArrayList<GamePiece>();
+    for (int i = 0; i < this.height; i++) {
+      if (i == 0 && powerStation) {
+        col.add(new GamePiece(i, j, left, right, top, bottom, true, false));
+      }
+      else {
+        col.add(new GamePiece(i, j, left, right, top, bottom, false, false));
+      }
+    }
+    return col;
+  }
+
+  // changes the connection values of the game pieces
+  // to match the wires the generator laid out
+  public void changeWires() {
+    long start = Metrics.start();
+    for (int i = 0; i < this.engine.cells.size(); i++) {
+      this.syncPiece(i);
+    }
+    Metrics.phase(Metrics.CHANGE_WIRES, start);
+  }
+
+  // adds all of the game pieces into an ArrayList of game pieces
+  public void createNodeList() {
+    long start = Metrics.start();
+    for (ArrayList<GamePiece> col: this.board) {
+      for (GamePiece g: col) {
+        this.nodes.add(g);
+      }
+    }
+    Metrics.phase(Metrics.CREATE_NODE_LIST, start);
+  }
+
+  // starts the game over on a new board laid out by the given generator
+  public void restart(IBoardGenerator generator) {
+    this.engine.restart(generator);
+  }
+
+  // starts the game over on the board laid out by the given generator from the given seed
+  public void restart(IBoardGenerator generator, long seed) {
+    this.engine.restart(generator, seed);
+  }
+
+
+  //initializes the list of neighbors for each game piece
+  public void initNeighbors() {
+    long start = Metrics.start();
+    for (int i = 0; i < this.engine.cells.size(); i++) {
+      this.initNeighbors(i);
+    }
+    Metrics.phase(Metrics.INIT_NEIGHBORS, start);
+  }
+
+  // initializes the list of neighbors for the game piece at the given index
+  void initNeighbors(int i) {
+    GamePiece g = this.pieceAt(i);
+    PackedBoard cells = this.engine.cells;
+    g.neighbors = new ArrayList<GamePiece>();
+    int[] dirs = {PackedBoard.LEFT, PackedBoard.RIGHT, PackedBoard.TOP, PackedBoard.BOTTOM};
+
+    for (int dir : dirs) {
+      int n = cells.neighbor(i, dir);
+      if (n >= 0 && cells.has(i, dir)) {
+        g.neighbors.add(this.pieceAt(n));
+      }
+    }
+  }
+
+  // rotates the game piece clockwise with each click
+  public void onMouseClicked(Posn mousePosn, String button) {
+    long start = Metrics.start();
+    long allocated = Metrics.allocated();
+    if (button.equals("LeftButton") && mousePosn.y > 40) {
+      this.engine.click(this.engine.cells.index(mousePosn.x / 40, (mousePosn.y / 40) - 1));
+    }
+
+    // starts game over when red button is clicked
+    if (button.equals("LeftButton") && (5 < mousePosn.y) && (mousePosn.y < 35)
+        && (((this.width * 20) - 15) < mousePosn.x) && (mousePosn.x < ((this.width * 20) + 15))) {
+      this.engine.restart(this.engine.generator);
+    }
+    Metrics.event(Metrics.CLICK, start, allocated);
+  }
+
+  // copies the power of the cell at the given index onto its game piece,
+  // marking it to be drawn again if its color changed
+  void syncPower(int i) {
+    GamePiece g = this.pieceAt(i);
+    PowerField power = this.engine.power;
+    int radius = this.engine.radius;
+    Color before = g.color;
+    if (i == power.station) {
+      g.isPowered = power.hasConnection(i);
+      g.distance = radius;
+      g.color = Color.YELLOW;
+    }
+    else if (power.isConnected(i)) {
+      g.isPowered = true;
+      g.distance = radius - power.hops[i];
+      g.changeColor(radius);
+    }
+    else {
+      g.isPowered = false;
+      g.distance = 0;
+      g.color = Color.GRAY;
+    }
+    if (g.color != before) {
+      this.scene.mark(i);
+    }
+  }
+
+  // Set default values for non-power station nodes for color and power
+  // and update based on distance from power station, all from a single
+  // breadth-first pass over the packed board
+  public void setDefaults() {
+    this.engine.recompute();
+  }
+
+  // return list of surrounding GamePieces mutually connected with given GamePiece
+  public ArrayList<GamePiece> listAllNeighbors(GamePiece piece) {
+    ArrayList<GamePiece> neighbors = new ArrayList<GamePiece>();
+
+    if (this.connectLeft(piece)) {
+      neighbors.add(this.board.get(piece.col - 1).get(piece.row));
+    }
+
+    if (this.connectRight(piece)) {
+      neighbors.add(this.board.get(piece.col + 1).get(piece.row));
+    }
+
+    if (this.connectAbove(piece)) {
+      neighbors.add(this.board.get(piece.col).get(piece.row - 1));
+    }
+
+    if (this.connectBelow(piece)) {
+      neighbors.add(this.board.get(piece.col).get(piece.row + 1));
+    }
+
+    return neighbors;
+  }
+
+  // moves the power station based on the keys pressed if there is a valid wire
+  // connection, and takes moves back and plays them again
+  public void onKeyEvent(String key) {
+    long start = Metrics.start();
+    long allocated = Metrics.allocated();
+
+    if (key.equals("left")) {
+      this.engine.moveStation(PackedBoard.LEFT);
+    }
+
+    if (key.equals("right")) {
+      this.engine.moveStation(PackedBoard.RIGHT);
+    }
+
+    if (key.equals("up")) {
+      this.engine.moveStation(PackedBoard.TOP);
+    }
+
+    if (key.equals("down")) {
+      this.engine.moveStation(PackedBoard.BOTTOM);
+    }
+
+    if (key.equals("u")) {
+      this.engine.undo();
+    }
+
+    if (key.equals("r")) {
+      this.engine.redo();
+    }
+    Metrics.event(Metrics.KEY, start, allocated);
+  }
+
+
+  // increases the second count by one with each tick
+  public void onTick() {
+    this.engine.tick();
+  }
+
+
+  // is there a path from the power station to the given GamePiece
+  public boolean hasPower(GamePiece piece, ArrayList<GamePiece> seen) {
+    if (!seen.contains(piece)) {
+      seen.add(piece);
+      Metrics.count(Metrics.HAS_POWER_VISITS, 1);
+      return (this.connectLeft(piece) 
+          && this.hasPower(this.board.get(piece.col - 1).get(piece.row), seen))
+          || (this.connectRight(piece) 
+              && this.hasPower(this.board.get(piece.col + 1).get(piece.row), seen))
+          || (this.connectAbove(piece) 
+              && this.hasPower(this.board.get(piece.col).get(piece.row - 1), seen))
+          || (this.connectBelow(piece) 
+              && this.hasPower(this.board.get(piece.col).get(piece.row + 1), seen));
+    }
+    return piece.powerStation || seen.contains(this.pieceAt(this.engine.station()));
+  }
+
+  // is this GamePiece connected to the GamePiece to its left
+  public boolean connectLeft(GamePiece p) {
+    PackedBoard cells = this.engine.cells;
+    return p.left && p.col != 0
+        && cells.has(cells.index(p.col - 1, p.row), PackedBoard.RIGHT);
+  }
+
+  // is this GamePiece connected to the GamePiece to its right
+  public boolean connectRight(GamePiece p) {
+    PackedBoard cells = this.engine.cells;
+    return p.right && p.col != this.width - 1
+        && cells.has(cells.index(p.col + 1, p.row), PackedBoard.LEFT);
+  }
+
+  // is this GamePiece connected to the GamePiece above
+  public boolean connectAbove(GamePiece p) {
+    PackedBoard cells = this.engine.cells;
+    return p.top && p.row != 0
+        && cells.has(cells.index(p.col, p.row - 1), PackedBoard.BOTTOM);
+  }
+
+  // is this GamePiece connected to the GamePiece below
+  public boolean connectBelow(GamePiece p) {
+    PackedBoard cells = this.engine.cells;
+    return p.bottom && p.row != this.height - 1
+        && cells.has(cells.index(p.col, p.row + 1), PackedBoard.TOP);
+  }
+}
@@ -0,0 +1,444 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+import javalib.worldimages.Posn;
+import tester.*;
+
+// pushes clicks, key presses and ticks straight at the event handlers of one or more
+// games, without a window, as fast as they go or at a fixed rate, and reports how
+// many it handled a second, how long the handlers took, and how much garbage they
+// made; the events are random, or a script played over and over, and each thread
+// plays them in turn across the games it is given
+//
+// a script has one event a line: "click COL ROW", "key NAME" or "tick"
+//
+// usage: java LoadDriver boards WxH events [rate] [seed] [threads] [script]
+//        where a rate of 0, the default, is as fast as possible; run with
+//        -Dlightemall.metrics=true to also see the stages each event ran
+class LoadDriver {
+  // the kinds of event, in the low two bits of each packed event
+  static final int CLICK = 0;
+  static final int KEY = 1;
+  static final int TICK = 2;
+  // the keys the game knows
+  static final String[] KEYS = {"left", "right", "up", "down", "u", "r"};
+  static final String USAGE = "usage: java LoadDriver boards WxH events [rate] [seed]"
+      + " [threads] [script]";
+
+  LightEmAll[] games;
+  // the events to play over and over, or null for random ones
+  int[] script;
+  // how many events were handled, how long the run took, and how long the handlers
+  // took each
+  long events;
+  long nanos;
+  LatencyHistogram latency;
+  // how many events came due before the last one was handled, at a fixed rate
+  long late;
+  // the collections and the milliseconds they took during the run, and the bytes
+  // the handlers allocated, if the virtual machine can tell
+  long collections;
+  long collectionMillis;
+  long allocated;
+
+  LoadDriver(LightEmAll[] games, int[] script) {
+    this.games = games;
+    this.script = script;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int boards;
+    int width;
+    int height;
+    long events;
+    long rate;
+    long seed;
+    int threads;
+    int[] script;
+    try {
+      if (args.length < 3 || args.length > 7) {
+        throw new IllegalArgumentException();
+      }
+      boards = Integer.parseInt(args[0]);
+      String[] size = args[1].split("x");
+      if (size.length != 2) {
+        throw new IllegalArgumentException();
+      }
+      width = Integer.parseInt(size[0]);
+      height = Integer.parseInt(size[1]);
+      events = Long.parseLong(args[2]);
+      rate = args.length > 3 ? Long.parseLong(args[3]) : 0;
+      seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+      threads = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+      if (boards < 1 || width < 1 || height < 1 || events < 1 || rate < 0 || threads < 1) {
+        throw new IllegalArgumentException();
+      }
+      script = args.length > 6 ? parse(Files.readAllLines(Paths.get(args[6]))) : null;
+    }
+    catch (IllegalArgumentException | IOException e) {
+      // a bad number says nothing more than the usage line does
+      if (e instanceof IOException) {
+        System.err.println("cannot read the script " + args[6]);
+      }
+      else if (e.getMessage() != null && !(e instanceof NumberFormatException)) {
+        System.err.println(e.getMessage());
+      }
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    LightEmAll[] games = new LightEmAll[boards];
+    for (int k = 0; k < boards; k++) {
+      games[k] = new LightEmAll(width, height, new KruskalGenerator(), new Scrambler(false),
+          seed + k);
+    }
+    LoadDriver driver = new LoadDriver(games, script);
+    Metrics.clear();
+    driver.run(events, rate, threads, seed);
+    System.out.print(driver.report());
+    if (Metrics.enabled) {
+      System.out.print(Metrics.snapshot());
+    }
+  }
+
+  // the events of the given lines of a script
+  static int[] parse(List<String> lines) {
+    ArrayList<Integer> events = new ArrayList<Integer>();
+    for (String line : lines) {
+      String[] words = line.trim().split("\\s+");
+      if (words[0].equals("click")) {
+        events.add(click(Integer.parseInt(words[1]), Integer.parseInt(words[2])));
+      }
+      else if (words[0].equals("key")) {
+        events.add(key(java.util.Arrays.asList(KEYS).indexOf(words[1])));
+      }
+      else if (words[0].equals("tick")) {
+        events.add(TICK);
+      }
+      else if (!words[0].isEmpty() && !words[0].startsWith("#")) {
+        throw new IllegalArgumentException("no such event: " + line);
+      }
+    }
+    int[] script = new int[events.size()];
+    for (int k = 0; k < script.length; k++) {
+      script[k] = events.get(k);
+    }
+    return script;
+  }
+
+  // a click on the cell in the given column and row
+  static int click(int col, int row) {
+    return (col << 16 | row) << 2 | CLICK;
+  }
+
+  // a press of the key with the given place in KEYS
+  static int key(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("no such key");
+    }
+    return k << 2 | KEY;
+  }
+
+  // a random event for the given game: mostly clicks, some keys and a few ticks
+  static int random(LightEmAll game, SplittableRandom rand) {
+    int roll = rand.nextInt(100);
+    if (roll < 80) {
+      return click(rand.nextInt(game.width), rand.nextInt(game.height));
+    }
+    else if (roll < 95) {
+      return key(rand.nextInt(KEYS.length));
+    }
+    return TICK;
+  }
+
+  // hands the given event to the given game
+  static void dispatch(LightEmAll game, int event) {
+    int kind = event & 3;
+    if (kind == CLICK) {
+      int col = event >>> 18;
+      int row = (event >>> 2) & 0xffff;
+      game.onMouseClicked(new Posn(40 * col + 20, 40 * row + 60), "LeftButton");
+    }
+    else if (kind == KEY) {
+      game.onKeyEvent(KEYS[event >>> 2]);
+    }
+    else {
+      game.onTick();
+    }
+  }
+
+  // plays the given number of events in all over the given number of threads, each
+  // with the games at its own places, at the given number of events a second in all,
+  // or as fast as possible if that is 0; no more threads run than there are games,
+  // since a game is only ever played by one thread
+  void run(long count, long rate, int threads, long seed) throws InterruptedException {
+    threads = Math.max(1, Math.min(threads, this.games.length));
+    long collections = 0;
+    long collectionMillis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collections = collections - Math.max(0, gc.getCollectionCount());
+      collectionMillis = collectionMillis - Math.max(0, gc.getCollectionTime());
+    }
+    SplittableRandom seeds = new SplittableRandom(seed);
+    DriverThread[] drivers = new DriverThread[threads];
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      long share = count / threads + (t < count % threads ? 1 : 0);
+      drivers[t] = new DriverThread(this, t, threads, share,
+          rate == 0 ? 0 : threads * 1_000_000_000L / rate, seeds.split());
+      drivers[t].start();
+    }
+    this.latency = new LatencyHistogram();
+    this.late = 0;
+    this.allocated = 0;
+    for (DriverThread d : drivers) {
+      d.join();
+      if (d.failure != null) {
+        throw d.failure;
+      }
+      this.latency.add(d.latency);
+      this.late = this.late + d.late;
+      this.allocated = this.allocated + d.allocated;
+    }
+    this.nanos = System.nanoTime() - start;
+    this.events = this.latency.count;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collections = collections + Math.max(0, gc.getCollectionCount());
+      collectionMillis = collectionMillis + Math.max(0, gc.getCollectionTime());
+    }
+    this.collections = collections;
+    this.collectionMillis = collectionMillis;
+  }
+
+  // what the last run did, one line each
+  String report() {
+    double seconds = this.nanos / 1e9;
+    return String.format("%d events on %d boards in %.2f s: %.0f events/s%n"
+        + "handler latency p50 %.1f us, p99 %.1f us, max %.1f us%n"
+        + "%d late, %d collections taking %d ms, %.0f bytes/event%n",
+        this.events, this.games.length, seconds, this.events / seconds,
+        this.latency.percentile(50) / 1e3, this.latency.percentile(99) / 1e3,
+        this.latency.max / 1e3, this.late, this.collections, this.collectionMillis,
+        this.events == 0 ? 0.0 : (double) this.allocated / this.events);
+  }
+}
+
+// one thread of a load driver, with the games at its own places
+class DriverThread extends Thread {
+  LoadDriver driver;
+  int first;
+  int step;
+  long count;
+  // the nanoseconds between events, or 0 to go as fast as possible
+  long period;
+  SplittableRandom rand;
+  LatencyHistogram latency;
+  long late;
+  long allocated;
+  RuntimeException failure;
+
+  DriverThread(LoadDriver driver, int first, int step, long count, long period,
+      SplittableRandom rand) {
+    super("load-" + first);
+    this.driver = driver;
+    this.first = first;
+    this.step = step;
+    this.count = count;
+    this.period = period;
+    this.rand = rand;
+    this.latency = new LatencyHistogram();
+  }
+
+  public void run() {
+    try {
+      LightEmAll[] games = this.driver.games;
+      int[] script = this.driver.script;
+      int next = this.first;
+      long before = Metrics.threads == null ? 0
+          : Metrics.threads.getCurrentThreadAllocatedBytes();
+      long due = System.nanoTime();
+      for (long k = 0; k < this.count && next < games.length; k++) {
+        LightEmAll game = games[next];
+        int event = script != null ? script[(int) (k % script.length)]
+            : LoadDriver.random(game, this.rand);
+        if (this.period != 0) {
+          long wait = due - System.nanoTime();
+          if (wait > 0) {
+            LockSupport.parkNanos(wait);
+          }
+          else if (k > 0) {
+            this.late = this.late + 1;
+          }
+          due = due + this.period;
+        }
+        long start = System.nanoTime();
+        LoadDriver.dispatch(game, event);
+        this.latency.record(System.nanoTime() - start);
+        next = next + this.step;
+        if (next >= games.length) {
+          next = this.first;
+        }
+      }
+      if (Metrics.threads != null) {
+        this.allocated = Metrics.threads.getCurrentThreadAllocatedBytes() - before;
+      }
+    }
+    catch (RuntimeException e) {
+      this.failure = e;
+    }
+  }
+}
+
+// counts of nanosecond values in buckets that are exact below 64 and within a
+// thirty-second of the value above it, so a percentile is found without keeping
+// every value
+class LatencyHistogram {
+  // the buckets within each power of two
+  static final int SUB = 32;
+
+  long[] counts;
+  long count;
+  long max;
+
+  LatencyHistogram() {
+    this.counts = new long[64 * SUB];
+  }
+
+  // the bucket of the given value
+  static int bucket(long value) {
+    if (value < 2 * SUB) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+    return shift * SUB + (int) (value >>> shift);
+  }
+
+  // the least value in the given bucket
+  static long lowest(int bucket) {
+    if (bucket < 2 * SUB) {
+      return bucket;
+    }
+    int shift = bucket / SUB - 1;
+    return (long) (bucket - shift * SUB) << shift;
+  }
+
+  // counts the given value
+  void record(long value) {
+    long v = Math.max(0, value);
+    this.counts[bucket(v)] = this.counts[bucket(v)] + 1;
+    this.count = this.count + 1;
+    this.max = Math.max(this.max, v);
+  }
+
+  // counts every value the given histogram counted
+  void add(LatencyHistogram other) {
+    for (int b = 0; b < this.counts.length; b++) {
+      this.counts[b] = this.counts[b] + other.counts[b];
+    }
+    this.count = this.count + other.count;
+    this.max = Math.max(this.max, other.max);
+  }
+
+  // the value the given percent of the values are at or below, given as the most its
+  // bucket holds so it is never under the true value
+  long percentile(double percent) {
+    long rank = (long) Math.ceil(percent / 100 * this.count);
+    long seen = 0;
+    for (int b = 0; b < this.counts.length; b++) {
+      seen = seen + this.counts[b];
+      if (seen >= Math.max(1, rank)) {
+        return Math.min(this.max, lowest(b + 1) - 1);
+      }
+    }
+    return this.max;
+  }
+}
+
+class ExamplesLoadDriver {
+  void testHistogram(Tester t) {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long v = 1; v <= 1000; v++) {
+      h.record(v * 1000);
+    }
+    t.checkExpect(h.count, 1000L);
+    t.checkExpect(h.max, 1_000_000L);
+    long p50 = h.percentile(50);
+    long p99 = h.percentile(99);
+    t.checkExpect(p50 >= 500_000 && p50 < 500_000 * 33 / 32, true);
+    t.checkExpect(p99 >= 990_000 && p99 < 990_000 * 33 / 32, true);
+    t.checkExpect(h.percentile(100), 1_000_000L);
+    // every bucket starts where the one before it ends
+    boolean ordered = true;
+    for (int b = 1; b < 40 * LatencyHistogram.SUB; b++) {
+      ordered = ordered && LatencyHistogram.bucket(LatencyHistogram.lowest(b)) == b
+          && LatencyHistogram.bucket(LatencyHistogram.lowest(b) - 1) == b - 1;
+    }
+    t.checkExpect(ordered, true);
+  }
+
+  void testParse(Tester t) {
+    int[] script = LoadDriver.parse(java.util.Arrays.asList("click 3 4", "", "# a note",
+        "key up", "tick"));
+    t.checkExpect(script.length, 3);
+    t.checkExpect(script[0], LoadDriver.click(3, 4));
+    t.checkExpect(script[1], LoadDriver.key(2));
+    t.checkExpect(script[2], LoadDriver.TICK);
+    String message = null;
+    try {
+      LoadDriver.parse(java.util.Arrays.asList("jump"));
+    }
+    catch (IllegalArgumentException e) {
+      message = e.getMessage();
+    }
+    t.checkExpect(message, "no such event: jump");
+  }
+
+  void testRun(Tester t) throws InterruptedException {
+    LightEmAll[] games = {new LightEmAll(6, 5, 1L), new LightEmAll(6, 5, 2L),
+        new LightEmAll(6, 5, 3L)};
+    LoadDriver driver = new LoadDriver(games, null);
+    driver.run(3000, 0, 2, 7L);
+    t.checkExpect(driver.events, 3000L);
+    t.checkExpect(driver.latency.percentile(50) <= driver.latency.percentile(99), true);
+    t.checkExpect(driver.latency.percentile(99) <= driver.latency.max, true);
+    int clicks = games[0].engine.moves + games[1].engine.moves + games[2].engine.moves;
+    t.checkExpect(clicks > 2000 && clicks < 2600, true);
+    t.checkExpect(driver.report().startsWith("3000 events on 3 boards"), true);
+    // more threads than games still plays every event
+    driver.run(500, 0, 8, 8L);
+    t.checkExpect(driver.events, 500L);
+  }
+
+  void testScript(Tester t) throws InterruptedException {
+    // a click on every cell of one column, over and over, with no board recomputed
+    int[] script = LoadDriver.parse(java.util.Arrays.asList("click 1 0", "click 1 1",
+        "click 1 2", "click 1 3", "key r", "tick"));
+    LightEmAll game = new LightEmAll(4, 4, 5L);
+    byte[] before = game.engine.cells.cells.clone();
+    Metrics.enable();
+    Metrics.clear();
+    new LoadDriver(new LightEmAll[] {game}, script).run(96, 0, 1, 1L);
+    MetricsSnapshot s = Metrics.snapshot();
+    Metrics.enabled = false;
+    t.checkExpect(s.eventCalls[Metrics.CLICK], 64L);
+    t.checkExpect(s.phaseCalls[Metrics.SET_DEFAULTS], 0L);
+    t.checkExpect(game.engine.time, 16);
+    // each cell turned 16 times is back where it started
+    t.checkExpect(java.util.Arrays.equals(game.engine.cells.cells, before), true);
+  }
+
+  void testRate(Tester t) throws InterruptedException {
+    LoadDriver driver = new LoadDriver(new LightEmAll[] {new LightEmAll(4, 4, 1L)}, null);
+    long start = System.nanoTime();
+    driver.run(100, 1000, 1, 3L);
+    t.checkExpect(System.nanoTime() - start >= 99_000_000L, true);
+    t.checkExpect(driver.events, 100L);
+  }
+}
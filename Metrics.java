@@ -0,0 +1,235 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import tester.*;
+
+// times each stage of laying out and updating a board, counts the work some of them
+// do, and measures the time and the bytes allocated by each event the player causes,
+// all of it shared by every game and thread; while it is off, every stage costs one
+// read of a flag, so it can be left in place and turned on from JMX when the game is
+// slow
+//
+// a stage is timed by taking Metrics.start() before it and handing that to
+// Metrics.phase() after, which does nothing if the start was taken while off
+class Metrics implements MetricsMXBean {
+  // the stages of the pipeline
+  static final String[] PHASES = {"createBoard", "createNodeList", "getAllEdges",
+      "kruskalMST", "changeWires", "initNeighbors", "setDefaults"};
+  static final int CREATE_BOARD = 0;
+  static final int CREATE_NODE_LIST = 1;
+  static final int GET_ALL_EDGES = 2;
+  static final int KRUSKAL_MST = 3;
+  static final int CHANGE_WIRES = 4;
+  static final int INIT_NEIGHBORS = 5;
+  static final int SET_DEFAULTS = 6;
+  // the events the player causes
+  static final String[] EVENTS = {"newBoard", "click", "key"};
+  static final int NEW_BOARD = 0;
+  static final int CLICK = 1;
+  static final int KEY = 2;
+  // the work that is counted rather than timed
+  static final String[] COUNTERS = {"hasPowerVisits", "unionFindLookups"};
+  static final int HAS_POWER_VISITS = 0;
+  static final int UNION_FIND_LOOKUPS = 1;
+  // the name it has on the platform's MBean server
+  static final String NAME = "lightemall:type=Metrics";
+
+  // whether anything is measured, on from the start if the system property
+  // lightemall.metrics is true
+  static volatile boolean enabled = Boolean.getBoolean("lightemall.metrics");
+  // the times each stage ran, and how long it took in all
+  static final LongAdder[] phaseCalls = adders(PHASES.length);
+  static final LongAdder[] phaseNanos = adders(PHASES.length);
+  // the times each event happened, how long it took, and what it allocated, in all
+  static final LongAdder[] eventCalls = adders(EVENTS.length);
+  static final LongAdder[] eventNanos = adders(EVENTS.length);
+  static final LongAdder[] eventBytes = adders(EVENTS.length);
+  static final LongAdder[] counts = adders(COUNTERS.length);
+  // the bytes each thread has allocated, where the virtual machine can tell
+  static final com.sun.management.ThreadMXBean threads = allocationCounter();
+
+  // the given number of fresh adders
+  static LongAdder[] adders(int n) {
+    LongAdder[] adders = new LongAdder[n];
+    for (int k = 0; k < n; k++) {
+      adders[k] = new LongAdder();
+    }
+    return adders;
+  }
+
+  // the threads of the virtual machine, if they count what they allocate
+  static com.sun.management.ThreadMXBean allocationCounter() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      return (com.sun.management.ThreadMXBean) bean;
+    }
+    return null;
+  }
+
+  // when a stage starts, or 0 if nothing is being measured
+  static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  // notes that the given stage, started at the given time, is done
+  static void phase(int phase, long start) {
+    if (start != 0) {
+      phaseCalls[phase].increment();
+      phaseNanos[phase].add(System.nanoTime() - start);
+    }
+  }
+
+  // how many bytes this thread has allocated so far, or 0 if nothing is being
+  // measured or the virtual machine cannot tell
+  static long allocated() {
+    return enabled && threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+  }
+
+  // notes that the given event, started at the given time with this thread having
+  // allocated the given number of bytes, is done
+  static void event(int event, long start, long allocated) {
+    if (start != 0) {
+      eventCalls[event].increment();
+      eventNanos[event].add(System.nanoTime() - start);
+      if (allocated != 0) {
+        eventBytes[event].add(allocated() - allocated);
+      }
+    }
+  }
+
+  // adds the given amount of work to the given counter
+  static void count(int counter, long amount) {
+    if (enabled) {
+      counts[counter].add(amount);
+    }
+  }
+
+  // turns measuring on, and makes it reachable through JMX
+  static void enable() {
+    register();
+    enabled = true;
+  }
+
+  // puts the metrics on the platform's MBean server, once
+  static void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(NAME);
+      synchronized (Metrics.class) {
+        if (!server.isRegistered(name)) {
+          server.registerMBean(new Metrics(), name);
+        }
+      }
+    }
+    catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // forgets everything measured so far
+  static void clear() {
+    for (LongAdder[] adders : new LongAdder[][] {phaseCalls, phaseNanos, eventCalls,
+        eventNanos, eventBytes, counts}) {
+      for (LongAdder a : adders) {
+        a.reset();
+      }
+    }
+  }
+
+  // everything measured so far, as it is now
+  static MetricsSnapshot snapshot() {
+    return new MetricsSnapshot(sums(phaseCalls), sums(phaseNanos), sums(eventCalls),
+        sums(eventNanos), sums(eventBytes), sums(counts));
+  }
+
+  // the sum of each of the given adders
+  static long[] sums(LongAdder[] adders) {
+    long[] sums = new long[adders.length];
+    for (int k = 0; k < adders.length; k++) {
+      sums[k] = adders[k].sum();
+    }
+    return sums;
+  }
+
+  // the given values under the given names, in order
+  static Map<String, Long> named(String[] names, long[] values) {
+    Map<String, Long> map = new LinkedHashMap<String, Long>();
+    for (int k = 0; k < names.length; k++) {
+      map.put(names[k], values[k]);
+    }
+    return map;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean on) {
+    enabled = on;
+  }
+
+  public Map<String, Long> getPhaseCalls() {
+    return named(PHASES, sums(phaseCalls));
+  }
+
+  public Map<String, Long> getPhaseNanos() {
+    return named(PHASES, sums(phaseNanos));
+  }
+
+  public Map<String, Long> getEventCalls() {
+    return named(EVENTS, sums(eventCalls));
+  }
+
+  public Map<String, Long> getEventNanos() {
+    return named(EVENTS, sums(eventNanos));
+  }
+
+  public Map<String, Long> getEventBytes() {
+    return named(EVENTS, sums(eventBytes));
+  }
+
+  public Map<String, Long> getCounters() {
+    return named(COUNTERS, sums(counts));
+  }
+
+  public void reset() {
+    clear();
+  }
+}
+
+class ExamplesMetrics {
+  void testDisabled(Tester t) {
+    Metrics.enabled = false;
+    Metrics.clear();
+    GameEngine game = new GameEngine(6, 6, new KruskalGenerator(), null, 3L);
+    game.click(7);
+    MetricsSnapshot s = Metrics.snapshot();
+    t.checkExpect(Metrics.start(), 0L);
+    t.checkExpect(s.phaseCalls[Metrics.SET_DEFAULTS], 0L);
+    t.checkExpect(s.eventCalls[Metrics.CLICK], 0L);
+    t.checkExpect(s.counts[Metrics.UNION_FIND_LOOKUPS], 0L);
+  }
+
+  void testJmx(Tester t) throws Exception {
+    Metrics.enable();
+    Metrics.clear();
+    new GameEngine(4, 4, new KruskalGenerator(), null, 3L);
+    javax.management.MBeanServer server =
+        java.lang.management.ManagementFactory.getPlatformMBeanServer();
+    javax.management.ObjectName name = new javax.management.ObjectName(Metrics.NAME);
+    t.checkExpect(server.getAttribute(name, "Enabled"), true);
+    javax.management.openmbean.TabularData calls =
+        (javax.management.openmbean.TabularData) server.getAttribute(name, "PhaseCalls");
+    t.checkExpect(calls.size(), Metrics.PHASES.length);
+    t.checkExpect(calls.get(new Object[] {"kruskalMST"}).get("value"), 1L);
+    server.invoke(name, "reset", new Object[0], new String[0]);
+    t.checkExpect(Metrics.snapshot().phaseCalls[Metrics.KRUSKAL_MST], 0L);
+    server.setAttribute(name, new javax.management.Attribute("Enabled", false));
+    t.checkExpect(Metrics.enabled, false);
+  }
+}
@@ -0,0 +1,28 @@
+import java.util.Map;
+
+// what the metrics show through JMX, under lightemall:type=Metrics; JMX only looks
+// at public interfaces, so unlike the rest of the game this one is public
+public interface MetricsMXBean {
+  // whether anything is being measured
+  boolean isEnabled();
+
+  void setEnabled(boolean on);
+
+  // the times each stage of the pipeline ran, and the nanoseconds it took in all
+  Map<String, Long> getPhaseCalls();
+
+  Map<String, Long> getPhaseNanos();
+
+  // the times each event happened, and the nanoseconds and bytes it took in all
+  Map<String, Long> getEventCalls();
+
+  Map<String, Long> getEventNanos();
+
+  Map<String, Long> getEventBytes();
+
+  // the nodes hasPower visited and the union-find lookups made, in all
+  Map<String, Long> getCounters();
+
+  // forgets everything measured so far
+  void reset();
+}
@@ -0,0 +1,48 @@
+// everything the metrics measured up to one moment
+class MetricsSnapshot {
+  long[] phaseCalls;
+  long[] phaseNanos;
+  long[] eventCalls;
+  long[] eventNanos;
+  long[] eventBytes;
+  long[] counts;
+
+  MetricsSnapshot(long[] phaseCalls, long[] phaseNanos, long[] eventCalls,
+      long[] eventNanos, long[] eventBytes, long[] counts) {
+    this.phaseCalls = phaseCalls;
+    this.phaseNanos = phaseNanos;
+    this.eventCalls = eventCalls;
+    this.eventNanos = eventNanos;
+    this.eventBytes = eventBytes;
+    this.counts = counts;
+  }
+
+  // the average nanoseconds the given stage took, or 0 if it never ran
+  double meanNanos(int phase) {
+    return this.phaseCalls[phase] == 0 ? 0 : (double) this.phaseNanos[phase] / this.phaseCalls[phase];
+  }
+
+  // the average bytes the given event allocated, or 0 if it never happened
+  double bytesPerEvent(int event) {
+    return this.eventCalls[event] == 0 ? 0 : (double) this.eventBytes[event] / this.eventCalls[event];
+  }
+
+  // a table of everything measured
+  public String toString() {
+    StringBuilder s = new StringBuilder();
+    for (int k = 0; k < Metrics.PHASES.length; k++) {
+      s.append(String.format("%-16s %8d calls %12.1f us each%n", Metrics.PHASES[k],
+          this.phaseCalls[k], this.meanNanos(k) / 1e3));
+    }
+    for (int k = 0; k < Metrics.EVENTS.length; k++) {
+      s.append(String.format("%-16s %8d times %12.1f us each %12.0f bytes each%n",
+          Metrics.EVENTS[k], this.eventCalls[k],
+          this.eventCalls[k] == 0 ? 0 : this.eventNanos[k] / 1e3 / this.eventCalls[k],
+          this.bytesPerEvent(k)));
+    }
+    for (int k = 0; k < Metrics.COUNTERS.length; k++) {
+      s.append(String.format("%-16s %8d%n", Metrics.COUNTERS[k], this.counts[k]));
+    }
+    return s.toString();
+  }
+}
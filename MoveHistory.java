@@ -0,0 +1,161 @@
+import tester.*;
+
+// the moves of a game, each packed into one int, in a ring that grows as it fills up
+// to a limit and then forgets the oldest; the moves taken back are kept past the last
+// one played until another is played, so they can be played again
+//
+// a rotation is the index of its cell and how many clockwise clicks it turned, and a
+// move of the power station is the index of the cell it left and the direction it
+// went, told apart by the bit above the low two
+class MoveHistory {
+  // the bit that marks a move of the power station
+  static final int STATION = 4;
+  // how many moves are kept unless asked otherwise
+  static final int LIMIT = 1 << 20;
+
+  int[] moves;
+  // where the oldest move is kept, how many moves are played, and how many of the
+  // ones after those were taken back and can be played again
+  int first;
+  int played;
+  int undone;
+  // the most moves it ever keeps
+  int limit;
+
+  MoveHistory() {
+    this(LIMIT);
+  }
+
+  MoveHistory(int limit) {
+    this.moves = new int[Math.min(64, limit)];
+    this.limit = limit;
+  }
+
+  // the move rotating the cell at the given index clockwise the given number of times
+  static int rotation(int cell, int clicks) {
+    return cell << 3 | clicks;
+  }
+
+  // the move taking the power station from the cell at the given index to its
+  // neighbor in the given direction
+  static int station(int cell, int dir) {
+    return cell << 3 | STATION | Integer.numberOfTrailingZeros(dir);
+  }
+
+  // the cell the given move starts from
+  static int cell(int move) {
+    return move >>> 3;
+  }
+
+  // does the given move take the power station somewhere
+  static boolean movesStation(int move) {
+    return (move & STATION) != 0;
+  }
+
+  // the clockwise clicks of the given rotation
+  static int clicks(int move) {
+    return move & 3;
+  }
+
+  // the direction of the given move of the power station
+  static int dir(int move) {
+    return 1 << (move & 3);
+  }
+
+  // the place in the ring of the move the given number of moves after the oldest
+  int slot(int k) {
+    return (this.first + k) % this.moves.length;
+  }
+
+  // remembers the given move as the latest one played, forgetting the ones taken back
+  void push(int move) {
+    this.undone = 0;
+    if (this.played == this.moves.length) {
+      if (this.moves.length < this.limit) {
+        int[] bigger = new int[(int) Math.min(2L * this.moves.length, this.limit)];
+        for (int k = 0; k < this.played; k++) {
+          bigger[k] = this.moves[this.slot(k)];
+        }
+        this.moves = bigger;
+        this.first = 0;
+      }
+      else {
+        this.first = this.slot(1);
+        this.played = this.played - 1;
+      }
+    }
+    this.moves[this.slot(this.played)] = move;
+    this.played = this.played + 1;
+  }
+
+  // is there a move to take back
+  boolean canUndo() {
+    return this.played > 0;
+  }
+
+  // is there a move taken back to play again
+  boolean canRedo() {
+    return this.undone > 0;
+  }
+
+  // the latest move played, now taken back
+  int undo() {
+    this.played = this.played - 1;
+    this.undone = this.undone + 1;
+    return this.moves[this.slot(this.played)];
+  }
+
+  // the latest move taken back, now played again
+  int redo() {
+    this.undone = this.undone - 1;
+    this.played = this.played + 1;
+    return this.moves[this.slot(this.played - 1)];
+  }
+}
+
+class ExamplesMoveHistory {
+  void testMoves(Tester t) {
+    int r = MoveHistory.rotation(123, 3);
+    t.checkExpect(MoveHistory.cell(r), 123);
+    t.checkExpect(MoveHistory.movesStation(r), false);
+    t.checkExpect(MoveHistory.clicks(r), 3);
+    for (int dir : PowerField.DIRS) {
+      int s = MoveHistory.station(77, dir);
+      t.checkExpect(MoveHistory.cell(s), 77);
+      t.checkExpect(MoveHistory.movesStation(s), true);
+      t.checkExpect(MoveHistory.dir(s), dir);
+    }
+  }
+
+  void testRing(Tester t) {
+    MoveHistory h = new MoveHistory(100);
+    t.checkExpect(h.canUndo(), false);
+    for (int k = 0; k < 80; k++) {
+      h.push(k);
+    }
+    t.checkExpect(h.moves.length, 100);
+    t.checkExpect(h.undo(), 79);
+    t.checkExpect(h.undo(), 78);
+    t.checkExpect(h.redo(), 78);
+    t.checkExpect(h.canRedo(), true);
+    // playing a move forgets the one taken back
+    h.push(500);
+    t.checkExpect(h.canRedo(), false);
+    t.checkExpect(h.undo(), 500);
+    t.checkExpect(h.undo(), 78);
+    h.redo();
+    h.redo();
+    // past the limit the oldest moves are forgotten
+    for (int k = 0; k < 30; k++) {
+      h.push(1000 + k);
+    }
+    t.checkExpect(h.played, 100);
+    int last = 0;
+    while (h.canUndo()) {
+      last = h.undo();
+    }
+    t.checkExpect(last, 10);
+    t.checkExpect(h.undone, 100);
+    t.checkExpect(h.redo(), 10);
+  }
+}
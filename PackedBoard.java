@@ -0,0 +1,126 @@
+// a compact board of wire masks, one byte per cell,
+// stored in column-major order like LightEmAll.board
+class PackedBoard {
+  // the wire bits of a cell in clockwise order,
+  // so a clockwise rotation is a rotation of the low four bits
+  static final int TOP = 1;
+  static final int RIGHT = 2;
+  static final int BOTTOM = 4;
+  static final int LEFT = 8;
+  static final int WIRES = 15;
+  // whether the power station is on the cell
+  static final int STATION = 16;
+
+  int width;
+  int height;
+  byte[] cells;
+
+  PackedBoard(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.cells = new byte[width * height];
+  }
+
+  // the index of the cell at the given column and row
+  int index(int col, int row) {
+    return col * this.height + row;
+  }
+
+  // the column of the cell at the given index
+  int col(int i) {
+    return i / this.height;
+  }
+
+  // the row of the cell at the given index
+  int row(int i) {
+    return i % this.height;
+  }
+
+  // the number of cells on this board
+  int size() {
+    return this.cells.length;
+  }
+
+  // the mask of the cell at the given index
+  int mask(int i) {
+    return this.cells[i];
+  }
+
+  // does the cell at the given index have all of the given bits
+  boolean has(int i, int bits) {
+    return (this.cells[i] & bits) == bits;
+  }
+
+  // turns the given bits of the cell at the given index on or off
+  void set(int i, int bits, boolean on) {
+    if (on) {
+      this.cells[i] = (byte) (this.cells[i] | bits);
+    }
+    else {
+      this.cells[i] = (byte) (this.cells[i] & ~bits);
+    }
+  }
+
+  // rotates the wires of the cell at the given index clockwise
+  void rotate(int i) {
+    this.cells[i] = (byte) rotateMask(this.cells[i]);
+  }
+
+  // the given mask with its wires rotated clockwise once
+  static int rotateMask(int mask) {
+    int wires = mask & WIRES;
+    return (((wires << 1) | (wires >>> 3)) & WIRES) | (mask & ~WIRES);
+  }
+
+  // the direction facing the given direction
+  static int opposite(int dir) {
+    return ((dir << 2) | (dir >>> 2)) & WIRES;
+  }
+
+  // the index of the cell next to the given one in the given direction,
+  // or -1 if that would be off the board
+  int neighbor(int i, int dir) {
+    if (dir == TOP) {
+      return i % this.height != 0 ? i - 1 : -1;
+    }
+    else if (dir == BOTTOM) {
+      return i % this.height != this.height - 1 ? i + 1 : -1;
+    }
+    else if (dir == LEFT) {
+      return i >= this.height ? i - this.height : -1;
+    }
+    else {
+      return i < this.cells.length - this.height ? i + this.height : -1;
+    }
+  }
+
+  // is the cell at the given index connected to the one to its left
+  boolean connectLeft(int i) {
+    return (this.cells[i] & LEFT) != 0 && i >= this.height
+        && (this.cells[i - this.height] & RIGHT) != 0;
+  }
+
+  // is the cell at the given index connected to the one to its right
+  boolean connectRight(int i) {
+    return (this.cells[i] & RIGHT) != 0 && i < this.cells.length - this.height
+        && (this.cells[i + this.height] & LEFT) != 0;
+  }
+
+  // is the cell at the given index connected to the one above
+  boolean connectAbove(int i) {
+    return (this.cells[i] & TOP) != 0 && i % this.height != 0
+        && (this.cells[i - 1] & BOTTOM) != 0;
+  }
+
+  // is the cell at the given index connected to the one below
+  boolean connectBelow(int i) {
+    return (this.cells[i] & BOTTOM) != 0 && i % this.height != this.height - 1
+        && (this.cells[i + 1] & TOP) != 0;
+  }
+
+  // is the cell at the given index connected to its neighbor in the given direction
+  boolean connected(int i, int dir) {
+    int n = this.neighbor(i, dir);
+    return n >= 0 && (this.cells[i] & dir) != 0 && (this.cells[n] & opposite(dir)) != 0;
+  }
+}
@@ -0,0 +1,128 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Boruvka's algorithm run across every core of a fork-join pool: each round, every
+// component picks its lightest edge out in parallel and all of them are joined at once,
+// so there are at most log n rounds. Weights are drawn from the same ranges as Kruskal's,
+// so vertical wires are still preferred
+class ParallelGenerator extends ABoardGenerator {
+  // no component has picked an edge yet
+  static final long NONE = Long.MAX_VALUE;
+
+  ForkJoinPool pool;
+
+  ParallelGenerator() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  ParallelGenerator(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  public String name() {
+    return "parallel";
+  }
+
+  void layout(PackedBoard board, SplittableRandom rand) {
+    int n = board.size();
+    byte[] weights = new byte[2 * n];
+    int[] comp = new int[n];
+    AtomicLongArray best = new AtomicLongArray(n);
+    DisjointSet sets = new DisjointSet(n);
+
+    // each block of cells draws its weights from its own stream, split off in order,
+    // so the board depends only on the seed and not on how the work was scheduled
+    int blocks = (n + ParallelRange.GRAIN - 1) / ParallelRange.GRAIN;
+    SplittableRandom[] streams = new SplittableRandom[blocks];
+    for (int b = 0; b < blocks; b++) {
+      streams[b] = rand.split();
+    }
+    ParallelRange.run(this.pool, blocks, 1, (first, last) -> {
+      for (int b = first; b < last; b++) {
+        SplittableRandom local = streams[b];
+        int end = Math.min(n, (b + 1) * ParallelRange.GRAIN);
+        for (int i = b * ParallelRange.GRAIN; i < end; i++) {
+          comp[i] = i;
+          weights[2 * i + EdgeList.DOWN] = (byte) local.nextInt(EdgeList.VERTICAL_WEIGHTS);
+          weights[2 * i + EdgeList.ACROSS] = (byte) local.nextInt(EdgeList.HORIZONTAL_WEIGHTS);
+        }
+      }
+    });
+
+    // the root of every component, which shrinks by at least half each round
+    int[] roots = new int[n];
+    for (int i = 0; i < n; i++) {
+      roots[i] = i;
+      best.set(i, NONE);
+    }
+    int components = n;
+    while (components > 1) {
+      // every cell offers its lightest edge to another component to its own component
+      ParallelRange.run(this.pool, n, (from, to) -> {
+        for (int i = from; i < to; i++) {
+          long key = lightestEdgeOut(board, weights, comp, i);
+          if (key != NONE) {
+            long current = best.get(comp[i]);
+            while (key < current && !best.compareAndSet(comp[i], current, key)) {
+              current = best.get(comp[i]);
+            }
+          }
+        }
+      });
+
+      // the picked edges never form a cycle since the weights are made distinct by id,
+      // though two components may pick the same edge
+      int count = components;
+      for (int k = 0; k < count; k++) {
+        long key = best.get(roots[k]);
+        best.set(roots[k], NONE);
+        int id = (int) key;
+        int from = EdgeList.from(id);
+        int dir = EdgeList.isVertical(id) ? PackedBoard.BOTTOM : PackedBoard.RIGHT;
+        if (sets.union(from, board.neighbor(from, dir))) {
+          join(board, from, dir);
+          components = components - 1;
+        }
+      }
+      int kept = 0;
+      for (int k = 0; k < count; k++) {
+        if (sets.parent[roots[k]] == roots[k]) {
+          roots[kept] = roots[k];
+          kept = kept + 1;
+        }
+      }
+
+      // the unions only ever link roots, so each label is a short walk from its new root
+      ParallelRange.run(this.pool, n, (from, to) -> {
+        for (int i = from; i < to; i++) {
+          int root = comp[i];
+          while (sets.parent[root] != root) {
+            root = sets.parent[root];
+          }
+          comp[i] = root;
+        }
+      });
+    }
+  }
+
+  // the lightest edge from the cell at the given index to a cell in another component,
+  // as its weight in the high bits and its id in the low bits, or NONE if there is none
+  static long lightestEdgeOut(PackedBoard board, byte[] weights, int[] comp, int i) {
+    long best = NONE;
+    for (int dir : PowerField.DIRS) {
+      int n = board.neighbor(i, dir);
+      if (n >= 0 && comp[n] != comp[i]) {
+        int id;
+        if (dir == PackedBoard.TOP || dir == PackedBoard.BOTTOM) {
+          id = 2 * Math.min(i, n) + EdgeList.DOWN;
+        }
+        else {
+          id = 2 * Math.min(i, n) + EdgeList.ACROSS;
+        }
+        best = Math.min(best, ((long) weights[id] << 32) | id);
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,45 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// runs a loop body over a range of indices by splitting it in halves
+// until the pieces are small enough, letting idle workers steal the rest
+class ParallelRange extends RecursiveAction {
+  // the version of the serialized form, which a fork join task must declare
+  private static final long serialVersionUID = 1L;
+  // the fewest indices worth handing to another worker
+  static final int GRAIN = 4096;
+
+  IRangeBody body;
+  int from;
+  int to;
+  int grain;
+
+  ParallelRange(IRangeBody body, int from, int to, int grain) {
+    this.body = body;
+    this.from = from;
+    this.to = to;
+    this.grain = grain;
+  }
+
+  protected void compute() {
+    if (this.to - this.from <= this.grain) {
+      this.body.run(this.from, this.to);
+    }
+    else {
+      int mid = (this.from + this.to) >>> 1;
+      invokeAll(new ParallelRange(this.body, this.from, mid, this.grain),
+          new ParallelRange(this.body, mid, this.to, this.grain));
+    }
+  }
+
+  // runs the given body over the indices from 0 up to n on the given pool
+  static void run(ForkJoinPool pool, int n, IRangeBody body) {
+    run(pool, n, GRAIN, body);
+  }
+
+  // runs the given body over the indices from 0 up to n on the given pool,
+  // handing out at most the given number of indices at a time
+  static void run(ForkJoinPool pool, int n, int grain, IRangeBody body) {
+    pool.invoke(new ParallelRange(body, 0, n, grain));
+  }
+}
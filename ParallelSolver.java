@@ -0,0 +1,350 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import tester.*;
+
+// solves a large board by cutting it into strips of columns: the columns on either
+// side of each cut are decided first within a narrow band around it, then the strips
+// between them are solved on their own across the pool, which hands strips to idle
+// workers; where the pieces do not fit together, the cells around the misfits are
+// searched again with the rest held still, and a whole-board search that tries the
+// pieces' turns first is the last resort
+class ParallelSolver {
+  // the fewest columns worth giving a strip of their own
+  static final int MIN_COLUMNS = 16;
+
+  PackedBoard board;
+  int station;
+  int radius;
+  ForkJoinPool pool;
+  // how many strips the last solve cut the board into
+  int strips;
+  // how many choices the last solve tried, and how long it spent propagating and in all,
+  // summed over every solver it used
+  long nodes;
+  long propagationNanos;
+  long nanos;
+  // did the last solve have to mend the strips where they did not fit, and did it
+  // have to solve the whole board in the end
+  int repairs;
+  boolean fellBack;
+
+  ParallelSolver(PackedBoard board, int station, int radius, ForkJoinPool pool) {
+    this.board = board;
+    this.station = station;
+    this.radius = radius;
+    this.pool = pool;
+  }
+
+  ParallelSolver(PackedBoard board, int station, int radius) {
+    this(board, station, radius, ForkJoinPool.commonPool());
+  }
+
+  // the turns for each cell that solve the board, in the same form as Solver.solve,
+  // or null if there are none
+  int[] solve() {
+    long start = System.nanoTime();
+    this.nodes = 0;
+    this.propagationNanos = 0;
+    this.repairs = 0;
+    this.fellBack = false;
+    this.strips = Math.min(this.board.width / MIN_COLUMNS, 2 * this.pool.getParallelism());
+    int[] turns;
+    if (this.strips < 2) {
+      this.strips = 1;
+      turns = this.solveWhole(null);
+    }
+    else {
+      turns = this.solveStrips();
+    }
+    this.nanos = System.nanoTime() - start;
+    return turns;
+  }
+
+  // solves the whole board in one search, trying the given turns first
+  int[] solveWhole(int[] prefer) {
+    Solver whole = new Solver(this.board, this.station, this.radius);
+    whole.prefer = prefer;
+    int[] turns = whole.solve();
+    this.count(whole);
+    return turns;
+  }
+
+  // adds the work of the given solver to this one's
+  void count(Solver s) {
+    this.nodes = this.nodes + s.nodes;
+    this.propagationNanos = this.propagationNanos + s.propagationNanos;
+  }
+
+  // decides the columns beside each cut, solves the strips between them in parallel,
+  // and mends them where they do not fit together
+  int[] solveStrips() {
+    int width = this.board.width;
+    int height = this.board.height;
+    int n = this.board.size();
+    int strips = this.strips;
+    int[] cuts = new int[strips + 1];
+    for (int k = 0; k <= strips; k++) {
+      cuts[k] = k * width / strips;
+    }
+    long ends = 0;
+    for (int i = 0; i < n; i++) {
+      ends = ends + Integer.bitCount(this.board.mask(i) & PackedBoard.WIRES);
+    }
+    if (ends < 2L * (n - 1)) {
+      return null;
+    }
+    boolean tree = ends == 2L * (n - 1);
+
+    // the columns beside each cut are decided within a band of columns around it,
+    // each band on its own, and every other cell starts its strip free
+    int[] domains = new int[n];
+    Arrays.fill(domains, PackedBoard.WIRES);
+    Solver[] seams = new Solver[strips - 1];
+    boolean[] failed = new boolean[strips];
+    ParallelRange.run(this.pool, strips - 1, 1, (from, to) -> {
+      for (int k = from; k < to; k++) {
+        int cut = cuts[k + 1];
+        int left = Math.max(0, cut - MIN_COLUMNS / 2);
+        seams[k] = this.part(left, Math.min(width, cut + MIN_COLUMNS / 2), domains, tree);
+        seams[k].focus = new boolean[seams[k].n];
+        Arrays.fill(seams[k].focus, (cut - 1 - left) * height, (cut + 1 - left) * height, true);
+        failed[k] = seams[k].solve() == null;
+        if (!failed[k]) {
+          System.arraycopy(seams[k].domain, (cut - 1 - left) * height, domains,
+              (cut - 1) * height, 2 * height);
+        }
+      }
+    });
+    boolean decided = true;
+    for (int k = 0; k < strips - 1; k++) {
+      this.count(seams[k]);
+      decided = decided && !failed[k];
+    }
+    if (!decided) {
+      return null;
+    }
+
+    int[] turns = new int[n];
+    int[] redo = new int[strips];
+    Arrays.fill(failed, true);
+    for (int span = 1; span <= 3; span = span + 2) {
+      // a strip that cannot meet the columns decided beside it is solved again
+      // together with its neighbors, whose outer columns are further away
+      int count = 0;
+      for (int k = 0; k < strips; k++) {
+        if (failed[k]) {
+          redo[count] = k;
+          count = count + 1;
+        }
+      }
+      int wide = span / 2;
+      Solver[] parts = new Solver[count];
+      ParallelRange.run(this.pool, count, 1, (from, to) -> {
+        for (int p = from; p < to; p++) {
+          int k = redo[p];
+          int left = cuts[Math.max(0, k - wide)];
+          int right = cuts[Math.min(strips, k + 1 + wide)];
+          parts[p] = this.part(left, right, domains, tree);
+          parts[p].limit = Math.max(1000, parts[p].n / 8);
+          int[] part = parts[p].solve();
+          failed[k] = part == null;
+          if (part != null) {
+            System.arraycopy(part, (cuts[k] - left) * height, turns, cuts[k] * height,
+                (cuts[k + 1] - cuts[k]) * height);
+          }
+        }
+      });
+      for (Solver part : parts) {
+        this.count(part);
+      }
+    }
+    boolean[] stuck = new boolean[n];
+    for (int k = 0; k < strips; k++) {
+      if (failed[k]) {
+        Arrays.fill(stuck, cuts[k] * height, cuts[k + 1] * height, true);
+      }
+    }
+    return this.repair(turns, cuts, stuck, tree);
+  }
+
+  // a solver for the columns of the board from left up to right, starting from the
+  // given turns, whose wires may leave it wherever it has a neighboring column
+  Solver part(int left, int right, int[] domains, boolean tree) {
+    int height = this.board.height;
+    PackedBoard strip = new PackedBoard(right - left, height);
+    System.arraycopy(this.board.cells, left * height, strip.cells, 0, strip.size());
+    int[] given = Arrays.copyOfRange(domains, left * height, right * height);
+    return new Solver(strip, given, left > 0, right < this.board.width,
+        this.board.size(), tree);
+  }
+
+  // mends the given turns where the strips do not fit together: the misfits within
+  // a band of each cut, every cell of a strip that could not be solved, and every
+  // cell near one of them may turn freely again while the rest keep their turns,
+  // and if that fails a whole-board search tries the given turns first
+  int[] repair(int[] turns, int[] cuts, boolean[] stuck, boolean tree) {
+    int width = this.board.width;
+    int height = this.board.height;
+    int n = this.board.size();
+    int margin = MIN_COLUMNS / 2;
+    boolean[] misfit = this.misfits(turns, tree);
+    // how many columns each column is from the nearest cut
+    int[] apart = new int[width];
+    Arrays.fill(apart, width);
+    for (int k = 1; k < cuts.length - 1; k++) {
+      for (int c = 0; c < width; c++) {
+        apart[c] = Math.min(apart[c], Math.min(Math.abs(c - cuts[k]), Math.abs(c - cuts[k] + 1)));
+      }
+    }
+    int[] given = new int[n];
+    for (int i = 0; i < n; i++) {
+      given[i] = 1 << turns[i];
+    }
+    boolean fits = true;
+    for (int i = 0; i < n; i++) {
+      int col = this.board.col(i);
+      if (stuck[i] || misfit[i] && (apart[col] <= margin || !tree)) {
+        fits = false;
+        int row = this.board.row(i);
+        for (int c = Math.max(0, col - margin); c <= Math.min(width - 1, col + margin); c++) {
+          Arrays.fill(given, c * height + Math.max(0, row - margin),
+              c * height + Math.min(height - 1, row + margin) + 1, PackedBoard.WIRES);
+        }
+      }
+    }
+    if (fits) {
+      return turns;
+    }
+    this.repairs = this.repairs + 1;
+    Solver mend = new Solver(this.board, this.station, this.radius);
+    mend.given = given;
+    int[] mended = mend.solve();
+    this.count(mend);
+    if (mended != null) {
+      return mended;
+    }
+    this.fellBack = true;
+    return this.solveWhole(turns);
+  }
+
+  // which cells the given turns leave unpowered, too far from the station, or on a
+  // loop when the board can have none; a group closed off or a loop that crosses a
+  // cut, which no strip can see on its own, shows up as both
+  boolean[] misfits(int[] turns, boolean tree) {
+    int n = this.board.size();
+    PackedBoard turned = new PackedBoard(this.board.width, this.board.height);
+    System.arraycopy(this.board.cells, 0, turned.cells, 0, n);
+    Solver.apply(turned, turns);
+    // a breadth-first search from the station and then from each cell it missed, so
+    // every cell steps back toward where its search started
+    int[] hops = new int[n];
+    int[] back = new int[n];
+    int[] queue = new int[n];
+    Arrays.fill(hops, PowerField.UNPOWERED);
+    boolean[] misfit = new boolean[n];
+    int tail = 0;
+    for (int k = -1; k < n; k++) {
+      int start = k < 0 ? this.station : k;
+      if (hops[start] == PowerField.UNPOWERED) {
+        hops[start] = 0;
+        back[start] = -1;
+        queue[tail] = start;
+        for (int head = tail++; head < tail; head++) {
+          int u = queue[head];
+          misfit[u] = k >= 0 || hops[u] >= this.radius;
+          for (int dir : PowerField.DIRS) {
+            int v = turned.neighbor(u, dir);
+            if (turned.connected(u, dir) && hops[v] == PowerField.UNPOWERED) {
+              hops[v] = hops[u] + 1;
+              back[v] = u;
+              queue[tail] = v;
+              tail = tail + 1;
+            }
+          }
+        }
+      }
+    }
+    if (!tree) {
+      return misfit;
+    }
+    // any other wire closes a loop, which is walked back to where it splits
+    for (int i = 0; i < n; i++) {
+      for (int dir : PowerField.DIRS) {
+        int j = turned.neighbor(i, dir);
+        if (i < j && turned.connected(i, dir) && back[i] != j && back[j] != i) {
+          int a = i;
+          int b = j;
+          while (a != b) {
+            misfit[a] = true;
+            misfit[b] = true;
+            if (hops[a] >= hops[b]) {
+              a = back[a];
+            }
+            else {
+              b = back[b];
+            }
+          }
+          misfit[a] = true;
+        }
+      }
+    }
+    return misfit;
+  }
+}
+
+class ExamplesParallelSolver {
+  void testSolvesLikeSequential(Tester t) {
+    ForkJoinPool pool = new ForkJoinPool(3);
+    for (long seed = 1; seed <= 6; seed++) {
+      PackedBoard b = Solver.scrambled(70, 40, seed);
+      ParallelSolver p = new ParallelSolver(b, 0, b.size(), pool);
+      int[] turns = p.solve();
+      t.checkExpect(p.strips, 4);
+      t.checkExpect(turns.length, b.size());
+      t.checkExpect(Solver.solves(b, 0, b.size(), turns), true);
+    }
+  }
+
+  void testNarrowBoard(Tester t) {
+    PackedBoard b = Solver.scrambled(10, 30, 2);
+    ParallelSolver p = new ParallelSolver(b, 0, b.size(), new ForkJoinPool(2));
+    int[] turns = p.solve();
+    t.checkExpect(p.strips, 1);
+    t.checkExpect(Solver.solves(b, 0, b.size(), turns), true);
+  }
+
+  void testRadius(Tester t) {
+    PackedBoard b = Solver.scrambled(40, 5, 3);
+    int[] turns = new Solver(b, 0).solve();
+    Solver.apply(b, turns);
+    PowerField power = new PowerField(b, 0);
+    int deepest = 0;
+    for (int h : power.hops) {
+      deepest = Math.max(deepest, h);
+    }
+    ParallelSolver fits = new ParallelSolver(b, 0, deepest + 1, new ForkJoinPool(2));
+    t.checkExpect(Solver.solves(b, 0, deepest + 1, fits.solve()), true);
+    // nothing but the station is within a radius of one
+    t.checkExpect(new ParallelSolver(b, 0, 1, new ForkJoinPool(2)).solve(), null);
+  }
+
+  void testMisfits(Tester t) {
+    PackedBoard b = Solver.scrambled(20, 20, 4);
+    int[] turns = new Solver(b, 0).solve();
+    ParallelSolver p = new ParallelSolver(b, 0, b.size());
+    boolean[] none = p.misfits(turns, true);
+    t.checkExpect(Arrays.equals(none, new boolean[b.size()]), true);
+    // a corner cell fits only one way, so turning it once more cuts it off
+    int corner = b.size() - 1;
+    turns[corner] = (turns[corner] + 1) % 4;
+    boolean[] cut = p.misfits(turns, true);
+    t.checkExpect(cut[corner], true);
+    t.checkExpect(cut[0], false);
+  }
+
+  void testUnsolvable(Tester t) {
+    PackedBoard b = Solver.scrambled(40, 4, 5);
+    b.set(b.size() - 1, PackedBoard.WIRES, false);
+    t.checkExpect(new ParallelSolver(b, 0, b.size(), new ForkJoinPool(2)).solve(), null);
+  }
+}
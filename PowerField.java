@@ -0,0 +1,336 @@
+import java.util.Arrays;
+
+// how many wires away from the power station each cell of a packed board is,
+// kept up to date as single cells are rotated
+class PowerField {
+  // the hops of a cell that is not connected to the power station
+  static final int UNPOWERED = -1;
+  static final int[] DIRS = {PackedBoard.TOP, PackedBoard.RIGHT,
+      PackedBoard.BOTTOM, PackedBoard.LEFT};
+
+  PackedBoard cells;
+  int station;
+  // the number of wires between each cell and the power station
+  int[] hops;
+  // the cells whose hops changed during the last update, possibly repeated
+  int[] changed;
+  int changedCount;
+  // scratch space for the searches, sized to the board
+  int[] queue;
+  int[] queueHops;
+  long[] seeds;
+  boolean[] pending;
+  // the wires from the power station, walked once the station first moves, and
+  // whether that walk still matches the wires
+  StationTree tree;
+  boolean walked;
+
+  PowerField(PackedBoard cells, int station) {
+    this.cells = cells;
+    this.station = station;
+    int n = cells.size();
+    this.hops = new int[n];
+    this.changed = new int[16];
+    this.queue = new int[n];
+    this.queueHops = new int[n];
+    this.seeds = new long[16];
+    this.pending = new boolean[n];
+    this.recompute();
+  }
+
+  // recomputes the hops of every cell with a breadth-first search from the power station
+  void recompute() {
+    this.walked = false;
+    if (this.tree != null) {
+      this.tree.lazy = false;
+    }
+    Arrays.fill(this.hops, UNPOWERED);
+    this.changedCount = 0;
+    this.hops[this.station] = 0;
+    this.queue[0] = this.station;
+    int head = 0;
+    int tail = 1;
+
+    while (head < tail) {
+      int u = this.queue[head];
+      head = head + 1;
+      for (int dir : DIRS) {
+        if (this.cells.connected(u, dir)) {
+          int v = this.cells.neighbor(u, dir);
+          if (this.hops[v] == UNPOWERED) {
+            this.hops[v] = this.hops[u] + 1;
+            this.queue[tail] = v;
+            tail = tail + 1;
+          }
+        }
+      }
+    }
+  }
+
+  // moves the power station to the given neighbor wired to it; if the wires from the
+  // station form a tree, only the shifts of the two sides of the wire between them
+  // are noted, in logarithmic time, and that is what happened; otherwise every cell
+  // is searched again
+  boolean moveStation(int to) {
+    if (!this.walked) {
+      if (this.tree == null) {
+        this.tree = new StationTree(this.cells.size());
+      }
+      this.tree.walk(this);
+      this.walked = true;
+    }
+    if (this.tree.acyclic) {
+      this.tree.move(this.station, to);
+      this.station = to;
+      return true;
+    }
+    this.station = to;
+    this.recompute();
+    // the wires are as they were, so they still close a loop
+    this.walked = true;
+    return false;
+  }
+
+  // the number of wires between the cell at the given index and the power station,
+  // even while the moves of the station are not yet settled into the hops
+  int hops(int i) {
+    if (this.tree != null && this.tree.lazy && this.tree.enter[i] >= 0) {
+      return this.tree.hops(i);
+    }
+    return this.hops[i];
+  }
+
+  // brings the hops of every cell up to date with the moves of the station
+  void settle() {
+    if (this.tree != null && this.tree.lazy) {
+      this.tree.settle(this);
+    }
+  }
+
+  // is the cell at the given index connected to the power station
+  boolean isConnected(int i) {
+    return this.hops[i] != UNPOWERED;
+  }
+
+  // does the cell at the given index share a wire with any of its neighbors
+  boolean hasConnection(int i) {
+    for (int dir : DIRS) {
+      if (this.cells.connected(i, dir)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // rotates the cell at the given index clockwise, updating only the hops
+  // of the cells that are cut off from or joined to the power station by it
+  void rotate(int i) {
+    this.rotate(i, 1);
+  }
+
+  // rotates the cell at the given index clockwise the given number of times at once,
+  // updating only the hops of the cells that are cut off from or joined to the power
+  // station by it
+  void rotate(int i, int clicks) {
+    this.settle();
+    this.walked = false;
+    int before = this.cells.mask(i);
+    int after = before;
+    for (int r = 0; r < clicks; r++) {
+      after = PackedBoard.rotateMask(after);
+    }
+    this.changedCount = 0;
+    this.record(i);
+
+    // first drop the wires the rotation takes away...
+    this.cells.cells[i] = (byte) (before & after);
+    int seedCount = 0;
+    for (int dir : DIRS) {
+      int n = this.cells.neighbor(i, dir);
+      if (n >= 0 && (before & dir) != 0 && (after & dir) == 0
+          && this.cells.has(n, PackedBoard.opposite(dir))
+          && this.hops[i] != UNPOWERED) {
+        int child = this.hops[n] > this.hops[i] ? n : i;
+        if (!this.pending[child] && !this.isSupported(child)) {
+          this.pending[child] = true;
+          this.queue[seedCount] = child;
+          seedCount = seedCount + 1;
+        }
+      }
+    }
+    this.disconnect(seedCount);
+
+    // ...then add the ones it brings
+    this.cells.cells[i] = (byte) after;
+    for (int dir : DIRS) {
+      int n = this.cells.neighbor(i, dir);
+      if (n >= 0 && (before & dir) == 0 && (after & dir) != 0
+          && this.cells.has(n, PackedBoard.opposite(dir))) {
+        this.relax(i, n);
+        this.relax(n, i);
+      }
+    }
+  }
+
+  // does the cell at the given index still have a neighbor one hop closer
+  // to the power station that is not itself being cut off
+  boolean isSupported(int i) {
+    if (i == this.station) {
+      return true;
+    }
+    for (int dir : DIRS) {
+      if (this.cells.connected(i, dir)) {
+        int n = this.cells.neighbor(i, dir);
+        if (!this.pending[n] && this.hops[n] == this.hops[i] - 1) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  // finds every cell that lost its shortest path to the power station along with
+  // the given number of queued cells, then recomputes their hops from the cells around them
+  void disconnect(int seedCount) {
+    // the cut-off cells, in the order of their old hops
+    int head = 0;
+    int tail = seedCount;
+    for (int k = 1; k < seedCount; k++) {
+      int seed = this.queue[k];
+      int j = k;
+      while (j > 0 && this.hops[this.queue[j - 1]] > this.hops[seed]) {
+        this.queue[j] = this.queue[j - 1];
+        j = j - 1;
+      }
+      this.queue[j] = seed;
+    }
+    while (head < tail) {
+      int u = this.queue[head];
+      head = head + 1;
+      for (int dir : DIRS) {
+        if (this.cells.connected(u, dir)) {
+          int v = this.cells.neighbor(u, dir);
+          if (!this.pending[v] && this.hops[v] == this.hops[u] + 1 && !this.isSupported(v)) {
+            this.pending[v] = true;
+            this.queue[tail] = v;
+            tail = tail + 1;
+          }
+        }
+      }
+    }
+
+    // each cut-off cell can first be reached again from its closest neighbor outside the region
+    int count = tail;
+    if (this.seeds.length < count) {
+      this.seeds = new long[Math.max(count, this.seeds.length * 2)];
+    }
+    int seedCount2 = 0;
+    for (int k = 0; k < count; k++) {
+      int u = this.queue[k];
+      this.hops[u] = UNPOWERED;
+      this.record(u);
+    }
+    for (int k = 0; k < count; k++) {
+      int u = this.queue[k];
+      int best = UNPOWERED;
+      for (int dir : DIRS) {
+        if (this.cells.connected(u, dir)) {
+          int n = this.cells.neighbor(u, dir);
+          if (!this.pending[n] && this.hops[n] != UNPOWERED
+              && (best == UNPOWERED || this.hops[n] + 1 < best)) {
+            best = this.hops[n] + 1;
+          }
+        }
+      }
+      if (best != UNPOWERED) {
+        this.hops[u] = best;
+        this.seeds[seedCount2] = ((long) best << 32) | u;
+        seedCount2 = seedCount2 + 1;
+      }
+    }
+    Arrays.sort(this.seeds, 0, seedCount2);
+
+    // then settle the region closest-first, merging the sorted seeds with a queue
+    // of newly reached cells whose hops only ever grow
+    int si = 0;
+    head = 0;
+    tail = 0;
+    while (si < seedCount2 || head < tail) {
+      int u;
+      int h;
+      if (head < tail && (si == seedCount2
+          || this.queueHops[head] <= (int) (this.seeds[si] >>> 32))) {
+        u = this.queue[head];
+        h = this.queueHops[head];
+        head = head + 1;
+      }
+      else {
+        u = (int) this.seeds[si];
+        h = (int) (this.seeds[si] >>> 32);
+        si = si + 1;
+      }
+      if (this.pending[u] && this.hops[u] == h) {
+        this.pending[u] = false;
+        for (int dir : DIRS) {
+          if (this.cells.connected(u, dir)) {
+            int v = this.cells.neighbor(u, dir);
+            if (this.pending[v] && (this.hops[v] == UNPOWERED || h + 1 < this.hops[v])) {
+              this.hops[v] = h + 1;
+              this.queue[tail] = v;
+              this.queueHops[tail] = h + 1;
+              tail = tail + 1;
+            }
+          }
+        }
+      }
+    }
+
+    // whatever is left could not be reached at all
+    for (int k = 0; k < this.changedCount; k++) {
+      int u = this.changed[k];
+      if (this.pending[u]) {
+        this.pending[u] = false;
+        this.hops[u] = UNPOWERED;
+      }
+    }
+  }
+
+  // lowers the hops of the given cell and everything past it
+  // if the given connected cell gives it a shorter path to the power station
+  void relax(int from, int to) {
+    if (this.hops[from] == UNPOWERED
+        || (this.hops[to] != UNPOWERED && this.hops[to] <= this.hops[from] + 1)) {
+      return;
+    }
+    this.hops[to] = this.hops[from] + 1;
+    this.record(to);
+    this.queue[0] = to;
+    int head = 0;
+    int tail = 1;
+
+    while (head < tail) {
+      int u = this.queue[head];
+      head = head + 1;
+      for (int dir : DIRS) {
+        if (this.cells.connected(u, dir)) {
+          int v = this.cells.neighbor(u, dir);
+          if (this.hops[v] == UNPOWERED || this.hops[u] + 1 < this.hops[v]) {
+            this.hops[v] = this.hops[u] + 1;
+            this.record(v);
+            this.queue[tail] = v;
+            tail = tail + 1;
+          }
+        }
+      }
+    }
+  }
+
+  // remembers that the hops of the cell at the given index changed
+  void record(int i) {
+    if (this.changedCount == this.changed.length) {
+      this.changed = Arrays.copyOf(this.changed, this.changed.length * 2);
+    }
+    this.changed[this.changedCount] = i;
+    this.changedCount = this.changedCount + 1;
+  }
+}
@@ -0,0 +1,84 @@
+import java.util.SplittableRandom;
+
+// Prim's algorithm over the same biased weights as Kruskal,
+// growing the tree out from the top-left cell with a binary heap of edges
+class PrimGenerator extends ABoardGenerator {
+  public String name() {
+    return "prim";
+  }
+
+  void layout(PackedBoard board, SplittableRandom rand) {
+    EdgeList edges = new EdgeList(board.width, board.height);
+    edges.randomize(rand);
+    boolean[] inTree = new boolean[board.size()];
+    // each entry is an edge's weight in the high bits, then the cell in the tree
+    // it leaves from, then the direction it leaves in; every edge is pushed at most once
+    long[] heap = new long[Math.max(4, edges.count())];
+    int heapSize = this.addCell(board, edges, inTree, heap, 0, 0);
+
+    while (heapSize > 0) {
+      long top = heap[0];
+      heapSize = heapSize - 1;
+      heap[0] = heap[heapSize];
+      siftDown(heap, heapSize, 0);
+
+      int i = (int) (top >>> 4) & 0x3FFFFFFF;
+      int dir = (int) top & PackedBoard.WIRES;
+      int n = board.neighbor(i, dir);
+      if (!inTree[n]) {
+        join(board, i, dir);
+        heapSize = this.addCell(board, edges, inTree, heap, heapSize, n);
+      }
+    }
+  }
+
+  // adds the cell at the given index to the tree and pushes its edges
+  // to cells outside the tree onto the heap, returning the new heap size
+  int addCell(PackedBoard board, EdgeList edges, boolean[] inTree,
+      long[] heap, int heapSize, int i) {
+    inTree[i] = true;
+    for (int dir : PowerField.DIRS) {
+      int n = board.neighbor(i, dir);
+      if (n >= 0 && !inTree[n]) {
+        int id;
+        if (dir == PackedBoard.TOP || dir == PackedBoard.BOTTOM) {
+          id = 2 * Math.min(i, n) + EdgeList.DOWN;
+        }
+        else {
+          id = 2 * Math.min(i, n) + EdgeList.ACROSS;
+        }
+        heap[heapSize] = ((long) edges.weights[id] << 34) | ((long) i << 4) | dir;
+        siftUp(heap, heapSize);
+        heapSize = heapSize + 1;
+      }
+    }
+    return heapSize;
+  }
+
+  // moves the entry at the given position up until its parent is no larger
+  static void siftUp(long[] heap, int k) {
+    long entry = heap[k];
+    while (k > 0 && heap[(k - 1) / 2] > entry) {
+      heap[k] = heap[(k - 1) / 2];
+      k = (k - 1) / 2;
+    }
+    heap[k] = entry;
+  }
+
+  // moves the entry at the given position down until its children are no smaller
+  static void siftDown(long[] heap, int size, int k) {
+    long entry = heap[k];
+    while (2 * k + 1 < size) {
+      int child = 2 * k + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child = child + 1;
+      }
+      if (heap[child] >= entry) {
+        break;
+      }
+      heap[k] = heap[child];
+      k = child;
+    }
+    heap[k] = entry;
+  }
+}
@@ -0,0 +1,350 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import tester.*;
+
+// reads puzzles out of an archive, a file of many boards packed two cells to a byte
+// behind a header, with an index of where each one starts at the end; the file is
+// mapped into memory rather than read, so any puzzle in it, however large the file,
+// is found through the index and decoded without reading the ones around it
+//
+// the header is the magic number, the version, the number of puzzles and where the
+// index starts; each puzzle is its width and height, the index of its power station,
+// its radius, the seed it was laid out from, and the wires of its cells, the even
+// cells in the low four bits of each byte and the odd ones in the high four; the
+// index is where each puzzle starts, in order
+//
+// usage: java PuzzleArchive boards archive, to pack a file of boards written by the
+//        batch generator into an archive
+class PuzzleArchive implements AutoCloseable {
+  // the first bytes of every archive, "LEMA", and the version of the format
+  static final int MAGIC = 0x4c454d41;
+  static final int VERSION = 1;
+  // the bytes of the header, and of each puzzle before its cells
+  static final int HEADER = 24;
+  static final int RECORD = 20;
+  // the bytes each mapping of the file starts apart, and how far past the next start
+  // each one reaches, so a puzzle that starts near the end of one is still whole in it
+  static final long SEGMENT = 1L << 30;
+  static final int OVERLAP = 1 << 20;
+
+  FileChannel channel;
+  long count;
+  long indexAt;
+  // the whole file, mapped a segment at a time, since one mapping holds at most 2 GB
+  MappedByteBuffer[] segments;
+
+  PuzzleArchive(File file) throws IOException {
+    this.channel = FileChannel.open(file.toPath());
+    long size = this.channel.size();
+    this.segments = new MappedByteBuffer[(int) ((size + SEGMENT - 1) / SEGMENT)];
+    for (int s = 0; s < this.segments.length; s++) {
+      long start = s * SEGMENT;
+      this.segments[s] = this.channel.map(FileChannel.MapMode.READ_ONLY, start,
+          Math.min(SEGMENT + OVERLAP, size - start));
+    }
+    ByteBuffer header = size < HEADER ? null : this.at(0, HEADER);
+    if (header == null || header.getInt() != MAGIC || header.getInt() != VERSION) {
+      this.close();
+      throw new IOException("not an archive of puzzles");
+    }
+    this.count = header.getLong();
+    this.indexAt = header.getLong();
+  }
+
+  public static void main(String[] args) throws IOException {
+    File out = new File(args[1]);
+    long count = pack(new File(args[0]), out);
+    System.out.printf("%d puzzles, %d bytes%n", count, out.length());
+  }
+
+  // packs the boards of the given stream from the batch generator into an archive at
+  // the other given file, returning how many there were
+  static long pack(File from, File to) throws IOException {
+    long count = 0;
+    try (DataInputStream in = BatchGenerator.open(
+        new java.io.BufferedInputStream(new FileInputStream(from), 1 << 16));
+        ArchiveWriter out = new ArchiveWriter(to)) {
+      for (BatchBoard b = BatchGenerator.read(in, count); b != null;
+          b = BatchGenerator.read(in, count)) {
+        out.add(b.board, b.radius, b.seed);
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  // the given number of bytes of the file from the given place on, as a buffer of
+  // its own positioned at the first of them
+  ByteBuffer at(long offset, int length) throws IOException {
+    int s = (int) (offset / SEGMENT);
+    int within = (int) (offset - s * SEGMENT);
+    if (s >= this.segments.length) {
+      throw new IOException("past the end of the archive");
+    }
+    if (within + length <= this.segments[s].capacity()) {
+      ByteBuffer b = this.segments[s].duplicate();
+      b.position(within);
+      return b;
+    }
+    // only a puzzle bigger than the overlap can run past the end of its segment
+    return this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+  }
+
+  // where the puzzle at the given position in the archive starts
+  long offset(long k) throws IOException {
+    if (k < 0 || k >= this.count) {
+      throw new IndexOutOfBoundsException("no puzzle " + k + " of " + this.count);
+    }
+    return this.at(this.indexAt + 8 * k, 8).getLong();
+  }
+
+  // the puzzle at the given position in the archive
+  ArchivedPuzzle get(long k) throws IOException {
+    long offset = this.offset(k);
+    ByteBuffer r = this.at(offset, RECORD);
+    int width = r.getShort() & 0xffff;
+    int height = r.getShort() & 0xffff;
+    ArchivedPuzzle p = new ArchivedPuzzle(k, new PackedBoard(width, height));
+    p.station = r.getInt();
+    p.radius = r.getInt();
+    p.seed = r.getLong();
+    byte[] cells = p.board.cells;
+    ByteBuffer packed = this.at(offset + RECORD, (cells.length + 1) / 2);
+    for (int i = 0; i < cells.length; i = i + 2) {
+      int pair = packed.get();
+      cells[i] = (byte) (pair & PackedBoard.WIRES);
+      if (i + 1 < cells.length) {
+        cells[i + 1] = (byte) ((pair >> 4) & PackedBoard.WIRES);
+      }
+    }
+    p.board.set(p.station, PackedBoard.STATION, true);
+    return p;
+  }
+
+  // the puzzle at the given position in the archive, ready to be played
+  GameEngine engine(long k) throws IOException {
+    ArchivedPuzzle p = this.get(k);
+    return new GameEngine(p.board, p.station, p.radius, p.seed, null);
+  }
+
+  // a game of the puzzle at the given position in the archive
+  LightEmAll game(long k) throws IOException {
+    return new LightEmAll(this.engine(k));
+  }
+
+  // lets go of the file; the mappings last until they are no longer used
+  public void close() throws IOException {
+    this.channel.close();
+  }
+}
+
+// one puzzle read out of an archive
+class ArchivedPuzzle {
+  // its position in the archive
+  long index;
+  PackedBoard board;
+  int station;
+  int radius;
+  long seed;
+
+  ArchivedPuzzle(long index, PackedBoard board) {
+    this.index = index;
+    this.board = board;
+  }
+}
+
+// writes puzzles to a new archive one after another, then the index of where each
+// one starts, and fills in the header once it knows how many there are
+class ArchiveWriter implements AutoCloseable {
+  RandomAccessFile file;
+  DataOutputStream out;
+  // where each puzzle written so far starts, and how many there are
+  long[] offsets;
+  long count;
+  // the bytes written since the header, counted here since the stream's own count
+  // stops at 2 GB
+  long written;
+
+  ArchiveWriter(File file) throws IOException {
+    this.file = new RandomAccessFile(file, "rw");
+    this.file.setLength(0);
+    this.out = new DataOutputStream(
+        new BufferedOutputStream(Channels.newOutputStream(this.file.getChannel()), 1 << 16));
+    this.offsets = new long[1024];
+    // the count and the start of the index are filled in when it is closed
+    this.out.writeInt(PuzzleArchive.MAGIC);
+    this.out.writeInt(PuzzleArchive.VERSION);
+    this.out.writeLong(0);
+    this.out.writeLong(0);
+  }
+
+  // the place in the file the next byte written goes
+  long position() {
+    return PuzzleArchive.HEADER + this.written;
+  }
+
+  // writes the given board, whose power station is on the cell that has it
+  void add(PackedBoard board, int radius, long seed) throws IOException {
+    int station = 0;
+    for (int i = 0; i < board.size(); i++) {
+      if (board.has(i, PackedBoard.STATION)) {
+        station = i;
+      }
+    }
+    this.add(board, station, radius, seed);
+  }
+
+  // writes the given board with its power station at the given index
+  void add(PackedBoard board, int station, int radius, long seed) throws IOException {
+    if (this.count == this.offsets.length) {
+      this.offsets = java.util.Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+    }
+    this.offsets[(int) this.count] = this.position();
+    this.count = this.count + 1;
+    this.out.writeShort(board.width);
+    this.out.writeShort(board.height);
+    this.out.writeInt(station);
+    this.out.writeInt(radius);
+    this.out.writeLong(seed);
+    int n = board.size();
+    for (int i = 0; i < n; i = i + 2) {
+      int pair = board.mask(i) & PackedBoard.WIRES;
+      if (i + 1 < n) {
+        pair = pair | (board.mask(i + 1) & PackedBoard.WIRES) << 4;
+      }
+      this.out.writeByte(pair);
+    }
+    this.written = this.written + PuzzleArchive.RECORD + (n + 1) / 2;
+  }
+
+  // writes the index and the header and closes the file
+  public void close() throws IOException {
+    long indexAt = this.position();
+    for (int k = 0; k < this.count; k++) {
+      this.out.writeLong(this.offsets[k]);
+    }
+    this.out.flush();
+    this.file.seek(8);
+    this.file.writeLong(this.count);
+    this.file.writeLong(indexAt);
+    this.file.close();
+  }
+}
+
+class ExamplesPuzzleArchive {
+  // a new archive of the given boards, each laid out from the seed after its index
+  File write(PackedBoard[] boards) {
+    try {
+      File f = File.createTempFile("puzzles", ".lema");
+      f.deleteOnExit();
+      try (ArchiveWriter out = new ArchiveWriter(f)) {
+        for (int k = 0; k < boards.length; k++) {
+          out.add(boards[k], boards[k].width + k, k + 1);
+        }
+      }
+      return f;
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // a scrambled board of the given size laid out from the given seed, with its
+  // power station on the cell at the given index
+  PackedBoard board(int width, int height, long seed, int station) {
+    PackedBoard b = new PackedBoard(width, height);
+    java.util.SplittableRandom rand = new java.util.SplittableRandom(seed);
+    new KruskalGenerator().generate(b, rand);
+    new Scrambler(false).turn(b, rand, null);
+    b.set(station, PackedBoard.STATION, true);
+    return b;
+  }
+
+  void testRoundTrip(Tester t) throws IOException {
+    // odd sizes leave the high half of the last byte empty
+    PackedBoard[] boards = {this.board(5, 3, 1, 0), this.board(12, 10, 2, 7),
+        this.board(1, 1, 3, 0), this.board(33, 17, 4, 100)};
+    File f = this.write(boards);
+    t.checkExpect(f.length(), (long) (PuzzleArchive.HEADER
+        + 4 * PuzzleArchive.RECORD + 8 + 60 + 1 + 281 + 4 * 8));
+    try (PuzzleArchive archive = new PuzzleArchive(f)) {
+      t.checkExpect(archive.count, 4L);
+      // read out of order, each straight from the index
+      for (int k = 3; k >= 0; k--) {
+        ArchivedPuzzle p = archive.get(k);
+        t.checkExpect(java.util.Arrays.equals(p.board.cells, boards[k].cells), true);
+        t.checkExpect(p.radius, boards[k].width + k);
+        t.checkExpect(p.seed, k + 1L);
+        t.checkExpect(p.board.has(p.station, PackedBoard.STATION), true);
+      }
+      t.checkException(new IndexOutOfBoundsException("no puzzle 4 of 4"), archive, "get", 4L);
+    }
+  }
+
+  void testGame(Tester t) throws IOException {
+    // a board with only one solution, so the game finds the same one it was
+    // scrambled from
+    PackedBoard b = new PackedBoard(7, 6);
+    java.util.SplittableRandom rand = new java.util.SplittableRandom(9);
+    new KruskalGenerator().generate(b, rand);
+    Scrambler scrambler = new Scrambler(true);
+    scrambler.rework(b, 8, rand);
+    Difficulty d = new Difficulty(b, 8);
+    scrambler.turn(b, rand, d);
+    b.set(8, PackedBoard.STATION, true);
+    File f = this.write(new PackedBoard[] {b});
+    try (PuzzleArchive archive = new PuzzleArchive(f)) {
+      LightEmAll game = archive.game(0);
+      t.checkExpect(java.util.Arrays.equals(game.engine.cells.cells, b.cells), true);
+      t.checkExpect(game.engine.radius, 7);
+      t.checkExpect(game.engine.seed, 1L);
+      t.checkExpect(game.engine.power.station, 8);
+      t.checkExpect(game.board.get(1).get(2).powerStation, true);
+      t.checkExpect(game.board.get(0).get(0).powerStation, false);
+      t.checkExpect(game.board.get(1).get(2).left, b.has(8, PackedBoard.LEFT));
+      t.checkExpect(scrambler.proved, true);
+      t.checkExpect(game.engine.difficulty.clicks, d.clicks);
+      t.checkExpect(game.engine.difficulty.level(), d.level());
+    }
+  }
+
+  void testNotAnArchive(Tester t) throws IOException {
+    File f = File.createTempFile("puzzles", ".lemb");
+    f.deleteOnExit();
+    try (java.io.FileOutputStream out = new java.io.FileOutputStream(f)) {
+      new BatchGenerator(java.util.concurrent.ForkJoinPool.commonPool(), "kruskal",
+          BatchGenerator.SCRAMBLE, new int[] {4}, new int[] {4}).run(3, 5, out);
+    }
+    catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    String message = null;
+    try {
+      new PuzzleArchive(f).close();
+    }
+    catch (IOException e) {
+      message = e.getMessage();
+    }
+    t.checkExpect(message, "not an archive of puzzles");
+    // the batch generator's boards pack into an archive
+    File packed = File.createTempFile("puzzles", ".lema");
+    packed.deleteOnExit();
+    t.checkExpect(PuzzleArchive.pack(f, packed), 3L);
+    try (PuzzleArchive archive = new PuzzleArchive(packed)) {
+      t.checkExpect(archive.count, 3L);
+      t.checkExpect(archive.get(2).board.width, 4);
+      // with the radius the game gives the board laid out from the same seed
+      t.checkExpect(archive.get(2).radius, new GameEngine(4, 4, new KruskalGenerator(),
+          new Scrambler(false), archive.get(2).seed).radius);
+    }
+  }
+}
@@ -0,0 +1,393 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import tester.*;
+
+// draws a packed board straight into pixels, without javalib, one row of pixels
+// at a time, using the same geometry as GamePiece.drawTile
+//
+// usage: java RasterRenderer width height tile-size file.png
+class RasterRenderer {
+  // what covers each pixel of a tile
+  static final byte BACKGROUND = 0;
+  static final byte WIRE = 1;
+  static final byte STAR = 2;
+  static final byte CIRCLE = 3;
+  static final byte BORDER = 4;
+  // tiles smaller than this are drawn as one block in their wire color
+  static final int MIN_DETAIL = 4;
+
+  int size;
+  int radius;
+  // the wire colors as rgb, indexed like TileCache.palette
+  int[] palette;
+  // the pixels of each kind of tile by mask, row by row, built when first drawn
+  byte[][] shapes;
+
+  RasterRenderer(int size, int radius) {
+    this.size = size;
+    this.radius = radius;
+    Color[] colors = TileCache.palette(radius);
+    this.palette = new int[colors.length];
+    for (int k = 0; k < colors.length; k++) {
+      this.palette[k] = colors[k].getRGB() & 0xFFFFFF;
+    }
+    this.shapes = new byte[32][];
+  }
+
+  public static void main(String[] args) throws IOException {
+    int width = Integer.parseInt(args[0]);
+    int height = Integer.parseInt(args[1]);
+    int size = Integer.parseInt(args[2]);
+    PackedBoard board = new PackedBoard(width, height);
+    new ParallelGenerator().generate(board, new SplittableRandom());
+    board.set(0, PackedBoard.STATION, true);
+    PowerField power = new PowerField(board, 0);
+    int radius = new Eccentricity(board, 0).winningRadius();
+
+    long start = System.nanoTime();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[3]))) {
+      new RasterRenderer(size, radius).writePng(board, power, out);
+    }
+    System.out.printf("%dx%d pixels in %.1f ms%n", width * size, height * size,
+        (System.nanoTime() - start) / 1e6);
+  }
+
+  // the palette index of the wires of the cell at the given index
+  int shade(PackedBoard board, PowerField power, int i) {
+    int hops = power.hops(i);
+    if (board.has(i, PackedBoard.STATION)) {
+      return this.radius + 1;
+    }
+    else if (hops != PowerField.UNPOWERED && this.radius - hops > 0) {
+      return this.radius - hops;
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // the pixels of a tile with the given mask, row by row
+  byte[] shape(int mask) {
+    if (this.shapes[mask] == null) {
+      int s = this.size;
+      byte[] shape = new byte[s * s];
+      // thickness of wire one twenty-second the size of game piece, length one half
+      int thick = Math.max(1, s / 22);
+      int lo = (s - thick) / 2;
+      int hi = lo + thick;
+      double scale = s / 40.0;
+      for (int y = 0; y < s; y++) {
+        for (int x = 0; x < s; x++) {
+          byte what = BACKGROUND;
+          boolean across = y >= lo && y < hi;
+          boolean down = x >= lo && x < hi;
+          if (down && y < s / 2 && (mask & PackedBoard.TOP) != 0
+              || down && y >= s / 2 && (mask & PackedBoard.BOTTOM) != 0
+              || across && x < s / 2 && (mask & PackedBoard.LEFT) != 0
+              || across && x >= s / 2 && (mask & PackedBoard.RIGHT) != 0) {
+            what = WIRE;
+          }
+          if ((mask & PackedBoard.STATION) != 0) {
+            double dx = (x + 0.5 - s / 2.0) / scale;
+            double dy = (y + 0.5 - s / 2.0) / scale;
+            if (dx * dx + dy * dy <= 36) {
+              what = CIRCLE;
+            }
+            else if (inStar(dx, dy, 20)) {
+              what = STAR;
+            }
+          }
+          if (x == 0 || y == 0 || x == s - 1 || y == s - 1) {
+            what = BORDER;
+          }
+          shape[y * s + x] = what;
+        }
+      }
+      this.shapes[mask] = shape;
+    }
+    return this.shapes[mask];
+  }
+
+  // is the given point, relative to the center, inside a five pointed star
+  // with the given outer radius and its top point facing up
+  static boolean inStar(double x, double y, double outer) {
+    double inner = outer * Math.cos(2 * Math.PI / 5) / Math.cos(Math.PI / 5);
+    boolean inside = false;
+    double px = 0;
+    double py = -outer;
+    for (int k = 1; k <= 10; k++) {
+      double r = k % 2 == 0 ? outer : inner;
+      double angle = Math.PI * k / 5;
+      double qx = r * Math.sin(angle);
+      double qy = -r * Math.cos(angle);
+      if ((py > y) != (qy > y) && x < (qx - px) * (y - py) / (qy - py) + px) {
+        inside = !inside;
+      }
+      px = qx;
+      py = qy;
+    }
+    return inside;
+  }
+
+  // the color of one pixel of a tile in the given shade
+  int color(byte what, int shade) {
+    if (what == WIRE) {
+      return this.palette[shade];
+    }
+    else if (what == STAR) {
+      return Color.BLUE.getRGB() & 0xFFFFFF;
+    }
+    else if (what == CIRCLE) {
+      return Color.MAGENTA.getRGB() & 0xFFFFFF;
+    }
+    else if (what == BORDER) {
+      return Color.BLACK.getRGB() & 0xFFFFFF;
+    }
+    else {
+      return Color.DARK_GRAY.getRGB() & 0xFFFFFF;
+    }
+  }
+
+  // fills the given array with the rgb pixels of the given row of the whole board
+  void drawRow(PackedBoard board, PowerField power, int y, int[] pixels) {
+    int s = this.size;
+    int row = y / s;
+    int local = y % s;
+    for (int col = 0; col < board.width; col++) {
+      int i = board.index(col, row);
+      int mask = board.mask(i);
+      int shade = this.shade(board, power, i);
+      int x0 = col * s;
+      if (s < MIN_DETAIL) {
+        int rgb = (mask & PackedBoard.WIRES) == 0 ? this.color(BACKGROUND, 0)
+            : this.palette[shade];
+        for (int x = 0; x < s; x++) {
+          pixels[x0 + x] = rgb;
+        }
+      }
+      else {
+        byte[] shape = this.shape(mask);
+        for (int x = 0; x < s; x++) {
+          pixels[x0 + x] = this.color(shape[local * s + x], shade);
+        }
+      }
+    }
+  }
+
+  // the rgb pixels of the whole board, row by row
+  int[] render(PackedBoard board, PowerField power) {
+    int w = board.width * this.size;
+    int h = board.height * this.size;
+    int[] pixels = new int[w * h];
+    int[] row = new int[w];
+    for (int y = 0; y < h; y++) {
+      this.drawRow(board, power, y, row);
+      System.arraycopy(row, 0, pixels, y * w, w);
+    }
+    return pixels;
+  }
+
+  // the whole board as an image
+  BufferedImage toImage(PackedBoard board, PowerField power) {
+    int w = board.width * this.size;
+    int h = board.height * this.size;
+    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    int[] row = new int[w];
+    for (int y = 0; y < h; y++) {
+      this.drawRow(board, power, y, row);
+      image.setRGB(0, y, w, 1, row, 0, w);
+    }
+    return image;
+  }
+
+  // writes the board as a png, compressing one row of pixels at a time
+  // so that only a row of the image is ever held in memory
+  void writePng(PackedBoard board, PowerField power, OutputStream out) throws IOException {
+    int w = board.width * this.size;
+    int h = board.height * this.size;
+    DataOutputStream data = new DataOutputStream(out);
+    data.write(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+
+    PngChunks header = new PngChunks(data, "IHDR", 13);
+    DataOutputStream fields = new DataOutputStream(header);
+    fields.writeInt(w);
+    fields.writeInt(h);
+    // 8 bits per sample, truecolor, deflate, no filter, no interlace
+    fields.write(new byte[] {8, 2, 0, 0, 0});
+    header.close();
+
+    PngChunks idat = new PngChunks(data, "IDAT", 1 << 16);
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    DeflaterOutputStream deflate = new DeflaterOutputStream(idat, deflater, 1 << 16);
+    int[] row = new int[w];
+    byte[] line = new byte[1 + 3 * w];
+    for (int y = 0; y < h; y++) {
+      this.drawRow(board, power, y, row);
+      for (int x = 0; x < w; x++) {
+        line[1 + 3 * x] = (byte) (row[x] >> 16);
+        line[2 + 3 * x] = (byte) (row[x] >> 8);
+        line[3 + 3 * x] = (byte) row[x];
+      }
+      deflate.write(line);
+    }
+    deflate.finish();
+    deflater.end();
+    idat.close();
+
+    new PngChunks(data, "IEND", 0).close();
+    data.flush();
+  }
+}
+
+// an output stream that splits what is written to it into png chunks
+// of the given type, each at most the given length, with their checksums
+class PngChunks extends OutputStream {
+  DataOutputStream out;
+  byte[] type;
+  byte[] buffer;
+  int count;
+  CRC32 crc;
+
+  PngChunks(DataOutputStream out, String type, int length) {
+    this.out = out;
+    this.type = type.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+    this.buffer = new byte[Math.max(1, length)];
+    this.crc = new CRC32();
+  }
+
+  // adds one byte to the current chunk
+  public void write(int b) throws IOException {
+    if (this.count == this.buffer.length) {
+      this.emit();
+    }
+    this.buffer[this.count] = (byte) b;
+    this.count = this.count + 1;
+  }
+
+  // adds the given bytes to the current chunk, starting new chunks as it fills
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (this.count == this.buffer.length) {
+        this.emit();
+      }
+      int n = Math.min(len, this.buffer.length - this.count);
+      System.arraycopy(b, off, this.buffer, this.count, n);
+      this.count = this.count + n;
+      off = off + n;
+      len = len - n;
+    }
+  }
+
+  // writes out the current chunk
+  void emit() throws IOException {
+    this.crc.reset();
+    this.crc.update(this.type);
+    this.crc.update(this.buffer, 0, this.count);
+    this.out.writeInt(this.count);
+    this.out.write(this.type);
+    this.out.write(this.buffer, 0, this.count);
+    this.out.writeInt((int) this.crc.getValue());
+    this.count = 0;
+  }
+
+  // writes out the last chunk, which is empty if nothing was written since the last one
+  public void close() throws IOException {
+    this.emit();
+  }
+}
+
+class ExamplesRaster {
+  PackedBoard board;
+  PowerField power;
+
+  // a 2x1 board: the station on the left wired to the cell on the right
+  void init() {
+    this.board = new PackedBoard(2, 1);
+    this.board.set(0, PackedBoard.RIGHT | PackedBoard.STATION, true);
+    this.board.set(1, PackedBoard.LEFT, true);
+    this.power = new PowerField(this.board, 0);
+  }
+
+  void testShape(Tester t) {
+    this.init();
+    RasterRenderer r = new RasterRenderer(40, 2);
+    byte[] top = r.shape(PackedBoard.TOP);
+    t.checkExpect(top[0], RasterRenderer.BORDER);
+    t.checkExpect(top[5 * 40 + 19], RasterRenderer.WIRE);
+    t.checkExpect(top[30 * 40 + 19], RasterRenderer.BACKGROUND);
+    t.checkExpect(top[5 * 40 + 5], RasterRenderer.BACKGROUND);
+    byte[] station = r.shape(PackedBoard.STATION);
+    t.checkExpect(station[20 * 40 + 20], RasterRenderer.CIRCLE);
+    t.checkExpect(station[2 * 40 + 20], RasterRenderer.STAR);
+    t.checkExpect(station[2 * 40 + 4], RasterRenderer.BACKGROUND);
+  }
+
+  void testInStar(Tester t) {
+    t.checkExpect(RasterRenderer.inStar(0, 0, 20), true);
+    t.checkExpect(RasterRenderer.inStar(0, -19, 20), true);
+    t.checkExpect(RasterRenderer.inStar(0, 19, 20), false);
+    t.checkExpect(RasterRenderer.inStar(15, -15, 20), false);
+  }
+
+  void testRender(Tester t) {
+    this.init();
+    RasterRenderer r = new RasterRenderer(40, 2);
+    int[] pixels = r.render(this.board, this.power);
+    t.checkExpect(pixels.length, 80 * 40);
+    // the cell on the right is one hop from the station
+    t.checkExpect(pixels[19 * 80 + 45], TileCache.shadeColor(2, 1).getRGB() & 0xFFFFFF);
+    t.checkExpect(pixels[20 * 80 + 75], Color.DARK_GRAY.getRGB() & 0xFFFFFF);
+    t.checkExpect(pixels[20 * 80 + 20], Color.MAGENTA.getRGB() & 0xFFFFFF);
+    BufferedImage image = r.toImage(this.board, this.power);
+    t.checkExpect(image.getRGB(45, 19) & 0xFFFFFF, pixels[19 * 80 + 45]);
+  }
+
+  void testMovedStation(Tester t) {
+    // the hops of a station moved along a tree are shaded before they are settled
+    this.init();
+    this.board.set(0, PackedBoard.STATION, false);
+    this.board.set(1, PackedBoard.STATION, true);
+    t.checkExpect(this.power.moveStation(1), true);
+    RasterRenderer r = new RasterRenderer(40, 2);
+    t.checkExpect(r.shade(this.board, this.power, 0), 1);
+    t.checkExpect(r.shade(this.board, this.power, 1), 3);
+    t.checkExpect(this.power.tree.lazy, true);
+  }
+
+  void testSmallTiles(Tester t) {
+    this.init();
+    RasterRenderer r = new RasterRenderer(2, 2);
+    int[] pixels = r.render(this.board, this.power);
+    t.checkExpect(pixels.length, 8);
+    t.checkExpect(pixels[0], Color.YELLOW.getRGB() & 0xFFFFFF);
+    t.checkExpect(pixels[3], TileCache.shadeColor(2, 1).getRGB() & 0xFFFFFF);
+  }
+
+  void testWritePng(Tester t) throws IOException {
+    this.init();
+    RasterRenderer r = new RasterRenderer(40, 2);
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    r.writePng(this.board, this.power, bytes);
+    BufferedImage read = javax.imageio.ImageIO.read(
+        new java.io.ByteArrayInputStream(bytes.toByteArray()));
+    t.checkExpect(read.getWidth(), 80);
+    t.checkExpect(read.getHeight(), 40);
+    int[] pixels = r.render(this.board, this.power);
+    boolean same = true;
+    for (int y = 0; y < 40; y++) {
+      for (int x = 0; x < 80; x++) {
+        same = same && (read.getRGB(x, y) & 0xFFFFFF) == pixels[y * 80 + x];
+      }
+    }
+    t.checkExpect(same, true);
+  }
+}
@@ -0,0 +1,76 @@
+import java.awt.Color;
+import javalib.impworld.*;
+import javalib.worldimages.*;
+import tester.*;
+
+class ExamplesRendering {
+  void testPalette(Tester t) {
+    Color[] p = TileCache.palette(5);
+    t.checkExpect(p.length, 7);
+    t.checkExpect(p[0], Color.GRAY);
+    t.checkExpect(p[4], new Color(245, 215, 100));
+    t.checkExpect(p[6], Color.YELLOW);
+    t.checkExpect(TileCache.palette(5) == p, true);
+    // a game with another radius keeps its own palette
+    Color[] q = TileCache.palette(40);
+    t.checkExpect(q.length, 42);
+    t.checkExpect(TileCache.palette(5) == p, true);
+    t.checkExpect(TileCache.palette(40) == q, true);
+  }
+
+  void testTileShared(Tester t) {
+    TileCache tiles = new TileCache(40, 5);
+    GamePiece g = new GamePiece(0, 0, true, false, true, false, false, true);
+    g.distance = 4;
+    g.changeColor(5);
+
+    t.checkExpect(tiles.shade(g), 4);
+    t.checkExpect(tiles.tile(g.mask(), 4), g.drawTile());
+    t.checkExpect(tiles.tile(g.mask(), 4) == tiles.tile(g.mask(), 4), true);
+    t.checkExpect(tiles.tile(g.mask(), 4) == tiles.tile(g.mask(), 3), false);
+  }
+
+  void testSceneCacheMarks(Tester t) {
+    SceneCache cache = new SceneCache(10);
+    cache.mark(3);
+    cache.mark(3);
+    cache.mark(7);
+    t.checkExpect(cache.dirtyCount, 2);
+    t.checkExpect(cache.needsRedraw(5), true);
+    cache.clear();
+    t.checkExpect(cache.dirtyCount, 0);
+    t.checkExpect(cache.isDirty[3], false);
+  }
+
+  void testDirtyScene(Tester t) {
+    LightEmAll game = new LightEmAll(6, 6);
+    WorldScene first = game.makeScene();
+    t.checkExpect(game.scene.lastDrawn, 36);
+
+    game.onTick();
+    t.checkExpect(game.makeScene() == first, true);
+    t.checkExpect(game.scene.lastDrawn, 0);
+
+    game.onMouseClicked(new Posn(100, 100), "LeftButton");
+    game.makeScene();
+    t.checkExpect(game.scene.lastDrawn >= 1, true);
+    t.checkExpect(game.scene.lastDrawn < 36, true);
+
+    game.engine.radius = 3;
+    game.setDefaults();
+    t.checkExpect(game.makeScene() == first, false);
+    t.checkExpect(game.scene.lastDrawn, 36);
+  }
+
+  void testDrawUsesCache(Tester t) {
+    LightEmAll game = new LightEmAll(4, 4);
+    GamePiece g = game.board.get(0).get(0);
+
+    t.checkExpect(g.draw(game) == game.board.get(0).get(0).draw(game), true);
+    t.checkExpect(g.draw(game), g.drawTile());
+    game.engine.radius = 6;
+    game.setDefaults();
+    t.checkExpect(game.tiles().radius, 6);
+    t.checkExpect(g.draw(game), g.drawTile());
+  }
+}
@@ -0,0 +1,49 @@
+import javalib.impworld.*;
+
+// a scene kept from one frame to the next: only the tiles that changed since
+// the last frame are drawn again, on top of the old ones, and the whole scene is
+// drawn from scratch once those overlays outnumber the tiles on the board
+class SceneCache {
+  WorldScene scene;
+  // the radius the scene was drawn with
+  int radius;
+  // how many images have been drawn over the scene since it was last drawn from scratch
+  int overlays;
+  // how many tiles were drawn for the last frame
+  int lastDrawn;
+  // the cells that changed since the last frame, each listed once
+  int[] dirty;
+  int dirtyCount;
+  boolean[] isDirty;
+
+  SceneCache(int cells) {
+    this.dirty = new int[16];
+    this.isDirty = new boolean[cells];
+  }
+
+  // remembers that the cell at the given index needs drawing again
+  void mark(int i) {
+    if (!this.isDirty[i]) {
+      this.isDirty[i] = true;
+      if (this.dirtyCount == this.dirty.length) {
+        this.dirty = java.util.Arrays.copyOf(this.dirty, this.dirty.length * 2);
+      }
+      this.dirty[this.dirtyCount] = i;
+      this.dirtyCount = this.dirtyCount + 1;
+    }
+  }
+
+  // does the scene have to be drawn from scratch for the next frame
+  boolean needsRedraw(int radius) {
+    return this.scene == null || this.radius != radius
+        || this.overlays + this.dirtyCount > this.isDirty.length;
+  }
+
+  // forgets every change since the last frame
+  void clear() {
+    for (int k = 0; k < this.dirtyCount; k++) {
+      this.isDirty[this.dirty[k]] = false;
+    }
+    this.dirtyCount = 0;
+  }
+}
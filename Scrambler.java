@@ -0,0 +1,209 @@
+import java.util.SplittableRandom;
+import tester.*;
+
+// turns every cell of a freshly laid out board a random number of times, and can first
+// rework its wires until only one way of turning the cells back wires up the board
+class Scrambler {
+  // whether to make sure the scrambled board has only one solution
+  boolean unique;
+  // the most wires it moves looking for a board with only one solution
+  int maxChanges;
+  // whether the last scramble proved its board has only one solution, how many
+  // wires it moved to get there, and how long it took in all
+  boolean proved;
+  int changes;
+  long nanos;
+
+  Scrambler(boolean unique) {
+    this.unique = unique;
+    this.maxChanges = 1000;
+  }
+
+  // turns every cell of the given solved board a random number of times, first
+  // reworking its wires until it has only one solution if this scrambler should
+  void scramble(PackedBoard cells, int station, SplittableRandom rand) {
+    this.rework(cells, station, rand);
+    this.turn(cells, rand, null);
+  }
+
+  // reworks the wires of the given solved board until it has only one solution if
+  // this scrambler should, leaving it solved
+  void rework(PackedBoard cells, int station, SplittableRandom rand) {
+    long start = System.nanoTime();
+    this.proved = false;
+    this.changes = 0;
+    if (this.unique) {
+      this.proved = this.makeUnique(cells, station, rand);
+    }
+    this.nanos = System.nanoTime() - start;
+  }
+
+  // turns every cell of the given board a random number of times, telling the given
+  // measure of its difficulty about each turn unless it is null
+  void turn(PackedBoard cells, SplittableRandom rand, Difficulty difficulty) {
+    long start = System.nanoTime();
+    for (int i = 0; i < cells.size(); i++) {
+      for (int r = rand.nextInt(4); r > 0; r--) {
+        cells.rotate(i);
+        if (difficulty != null) {
+          difficulty.rotated(i);
+        }
+      }
+    }
+    this.nanos = this.nanos + System.nanoTime() - start;
+  }
+
+  // moves wires of the given solved board, keeping it a spanning tree, until no
+  // other way of turning its cells wires it up; false if it runs out of changes
+  // first or the search for another solution gives up
+  boolean makeUnique(PackedBoard cells, int station, SplittableRandom rand) {
+    int n = cells.size();
+    int[] differ = new int[n];
+    while (true) {
+      // the board as it stands is the first solution tried, so the search stops at
+      // the second
+      Solver solver = new Solver(cells, station);
+      solver.prefer = new int[n];
+      int[] other = solver.second();
+      if (other == null) {
+        return !solver.gaveUp;
+      }
+      int count = 0;
+      for (int i = 0; i < n; i++) {
+        if (other[i] != 0) {
+          differ[count] = i;
+          count = count + 1;
+        }
+      }
+      // every cell the other solution turns gets a chance to have its wires moved,
+      // which changes its piece and those of its neighbors
+      for (int k = 0; k < count && this.changes < this.maxChanges; k++) {
+        if (rand.nextInt(count) < 4 && this.rewire(cells, differ[k], rand)) {
+          this.changes = this.changes + 1;
+        }
+      }
+      if (this.changes >= this.maxChanges) {
+        return false;
+      }
+    }
+  }
+
+  // lays a wire from the cell at the given index to a random neighbor it is not
+  // wired to, and takes out a random other wire of the loop that closes so the board
+  // stays a spanning tree; false if the cell is wired to all its neighbors
+  boolean rewire(PackedBoard cells, int from, SplittableRandom rand) {
+    int[] free = new int[4];
+    int count = 0;
+    for (int dir : PowerField.DIRS) {
+      if (cells.neighbor(from, dir) >= 0 && !cells.has(from, dir)) {
+        free[count] = dir;
+        count = count + 1;
+      }
+    }
+    if (count == 0) {
+      return false;
+    }
+    int dir = free[rand.nextInt(count)];
+    int to = cells.neighbor(from, dir);
+
+    // the path of wires from the cell to that neighbor, found by a breadth-first
+    // search that remembers the direction each cell was reached in
+    int n = cells.size();
+    int[] came = new int[n];
+    int[] queue = new int[n];
+    came[from] = -1;
+    queue[0] = from;
+    int tail = 1;
+    for (int head = 0; head < tail && came[to] == 0; head++) {
+      int u = queue[head];
+      for (int d : PowerField.DIRS) {
+        int v = cells.neighbor(u, d);
+        if (cells.connected(u, d) && v != from && came[v] == 0) {
+          came[v] = PackedBoard.opposite(d);
+          queue[tail] = v;
+          tail = tail + 1;
+        }
+      }
+    }
+    int length = 0;
+    for (int v = to; v != from; v = cells.neighbor(v, came[v])) {
+      length = length + 1;
+    }
+    int cut = to;
+    for (int skip = rand.nextInt(length); skip > 0; skip--) {
+      cut = cells.neighbor(cut, came[cut]);
+    }
+    int back = came[cut];
+    cells.set(cut, back, false);
+    cells.set(cells.neighbor(cut, back), PackedBoard.opposite(back), false);
+    cells.set(from, dir, true);
+    cells.set(to, PackedBoard.opposite(dir), true);
+    return true;
+  }
+}
+
+class ExamplesScrambler {
+  // is the given board wired as a spanning tree of its cells
+  boolean isTree(PackedBoard b) {
+    PowerField power = new PowerField(b, 0);
+    int ends = 0;
+    for (int i = 0; i < b.size(); i++) {
+      ends = ends + Integer.bitCount(b.mask(i) & PackedBoard.WIRES);
+      if (!power.isConnected(i)) {
+        return false;
+      }
+    }
+    return ends == 2 * (b.size() - 1);
+  }
+
+  void testScramble(Tester t) {
+    PackedBoard b = new PackedBoard(12, 9);
+    SplittableRandom rand = new SplittableRandom(3);
+    new KruskalGenerator().generate(b, rand);
+    PackedBoard solved = new PackedBoard(12, 9);
+    System.arraycopy(b.cells, 0, solved.cells, 0, b.size());
+    Scrambler plain = new Scrambler(false);
+    plain.scramble(b, 0, rand);
+    t.checkExpect(plain.proved, false);
+    t.checkExpect(plain.changes, 0);
+    t.checkExpect(java.util.Arrays.equals(b.cells, solved.cells), false);
+    // every cell keeps its piece, only turned
+    boolean same = true;
+    for (int i = 0; i < b.size(); i++) {
+      same = same && Solver.period(b.mask(i) & PackedBoard.WIRES)
+          == Solver.period(solved.mask(i) & PackedBoard.WIRES)
+          && Integer.bitCount(b.mask(i)) == Integer.bitCount(solved.mask(i));
+    }
+    t.checkExpect(same, true);
+    t.checkExpect(Solver.solves(b, 0, b.size(), new Solver(b, 0).solve()), true);
+  }
+
+  void testUnique(Tester t) {
+    PackedBoard b = new PackedBoard(20, 20);
+    SplittableRandom rand = new SplittableRandom(8);
+    new KruskalGenerator().generate(b, rand);
+    Scrambler unique = new Scrambler(true);
+    unique.scramble(b, 0, rand);
+    t.checkExpect(unique.proved, true);
+    Solver solver = new Solver(b, 0);
+    int[] turns = solver.solve();
+    t.checkExpect(new Solver(b, 0).second(), null);
+    Solver.apply(b, turns);
+    t.checkExpect(this.isTree(b), true);
+  }
+
+  void testRewire(Tester t) {
+    PackedBoard b = new PackedBoard(6, 6);
+    SplittableRandom rand = new SplittableRandom(2);
+    new KruskalGenerator().generate(b, rand);
+    for (int k = 0; k < 20; k++) {
+      new Scrambler(true).rewire(b, rand.nextInt(b.size()), rand);
+      t.checkExpect(this.isTree(b), true);
+    }
+    // a cell wired to every neighbor has no wire to add
+    PackedBoard line = new PackedBoard(2, 1);
+    line.set(0, PackedBoard.RIGHT, true);
+    line.set(1, PackedBoard.LEFT, true);
+    t.checkExpect(new Scrambler(true).rewire(line, 0, rand), false);
+  }
+}
@@ -0,0 +1,235 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import tester.*;
+
+// saves a game in play to a few bytes per cell and brings it back; each cell is one
+// byte, its wires in the low four bits and the clicks it is away from its solution
+// in the two above them, so a game comes back in linear passes over the cells with
+// its power, colors and difficulty as they were, without laying out or solving the
+// board again
+//
+// the snapshot is the magic number, the version, the width and height, the seed, the
+// radius, the moves and the time, the index of the power station, whether clicks are
+// incremental, how the board was scrambled, the name of the generator, the features
+// of the solved layout its difficulty keeps, and then the cells
+class Snapshot {
+  // the first bytes of every snapshot, "LEMS", and the version of the format
+  static final int MAGIC = 0x4c454d53;
+  static final int VERSION = 1;
+  // how the game scrambles each new board
+  static final int UNSCRAMBLED = 0;
+  static final int SCRAMBLED = 1;
+  static final int UNIQUE = 2;
+
+  // the given game as it is now, as bytes
+  static byte[] save(GameEngine game) {
+    byte[] name = game.generator.name().getBytes(StandardCharsets.UTF_8);
+    int n = game.cells.size();
+    ByteBuffer b = ByteBuffer.allocate(48 + name.length + n);
+    b.putInt(MAGIC);
+    b.putInt(VERSION);
+    b.putShort((short) game.width);
+    b.putShort((short) game.height);
+    b.putLong(game.seed);
+    b.putInt(game.radius);
+    b.putInt(game.moves);
+    b.putInt(game.time);
+    b.putInt(game.power.station);
+    b.put((byte) (game.incremental ? 1 : 0));
+    b.put((byte) (game.scrambler == null ? UNSCRAMBLED
+        : game.scrambler.unique ? UNIQUE : SCRAMBLED));
+    b.putShort((short) name.length);
+    b.put(name);
+    b.putInt(game.difficulty.unforced);
+    b.putInt(game.difficulty.diameter);
+    byte[] cells = game.cells.cells;
+    byte[] away = game.difficulty.away;
+    for (int i = 0; i < n; i++) {
+      b.put((byte) ((cells[i] & PackedBoard.WIRES) | away[i] << 4));
+    }
+    return b.array();
+  }
+
+  // the game saved as the given bytes
+  static GameEngine load(byte[] bytes) throws IOException {
+    ByteBuffer b = ByteBuffer.wrap(bytes);
+    try {
+      if (b.getInt() != MAGIC || b.getInt() != VERSION) {
+        throw new IOException("not a snapshot of a game");
+      }
+      PackedBoard cells = new PackedBoard(b.getShort() & 0xffff, b.getShort() & 0xffff);
+      long seed = b.getLong();
+      int radius = b.getInt();
+      int moves = b.getInt();
+      int time = b.getInt();
+      int station = b.getInt();
+      boolean incremental = b.get() != 0;
+      int scrambled = b.get();
+      byte[] name = new byte[b.getShort()];
+      b.get(name);
+      int unforced = b.getInt();
+      int diameter = b.getInt();
+      int n = cells.size();
+      byte[] away = new byte[n];
+      for (int i = 0; i < n; i++) {
+        int c = b.get();
+        cells.cells[i] = (byte) (c & PackedBoard.WIRES);
+        away[i] = (byte) ((c >> 4) & 3);
+      }
+
+      GameEngine game = new GameEngine(cells, station, radius, seed,
+          new Difficulty(cells, away, unforced, diameter));
+      game.moves = moves;
+      game.time = time;
+      game.incremental = incremental;
+      IBoardGenerator generator =
+          BatchGenerator.generator(new String(name, StandardCharsets.UTF_8));
+      if (generator != null) {
+        game.generator = generator;
+      }
+      if (scrambled != UNSCRAMBLED) {
+        game.scrambler = new Scrambler(scrambled == UNIQUE);
+      }
+      return game;
+    }
+    catch (BufferUnderflowException e) {
+      throw new IOException("snapshot cut short");
+    }
+  }
+
+  // saves the given game to the given file
+  static void write(GameEngine game, File file) throws IOException {
+    write(save(game), file);
+  }
+
+  // writes the given snapshot to the given file, first to a file beside it that then
+  // takes its place, so a save cut short never leaves half a snapshot behind
+  static void write(byte[] bytes, File file) throws IOException {
+    File next = new File(file.getPath() + ".tmp");
+    Files.write(next.toPath(), bytes);
+    Files.move(next.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // the game saved in the given file
+  static GameEngine read(File file) throws IOException {
+    return load(Files.readAllBytes(file.toPath()));
+  }
+}
+
+class ExamplesSnapshot {
+  // a game some way into being played: scrambled, clicked, with its power station
+  // moved and some time gone by
+  GameEngine played() {
+    GameEngine game = new GameEngine(9, 7, new PrimGenerator(), new Scrambler(false), 31L);
+    for (int k = 0; k < 20; k++) {
+      game.rotate((k * 7) % game.cells.size());
+      game.moves = game.moves + 1;
+    }
+    game.moveStation(PackedBoard.RIGHT);
+    game.moveStation(PackedBoard.BOTTOM);
+    game.tick();
+    game.tick();
+    return game;
+  }
+
+  // do the two games stand and play the same
+  boolean same(GameEngine e, GameEngine f) {
+    e.settle();
+    f.settle();
+    return java.util.Arrays.equals(e.cells.cells, f.cells.cells)
+        && java.util.Arrays.equals(e.power.hops, f.power.hops)
+        && java.util.Arrays.equals(e.difficulty.away, f.difficulty.away)
+        && e.difficulty.score() == f.difficulty.score()
+        && e.power.station == f.power.station && e.radius == f.radius && e.seed == f.seed
+        && e.moves == f.moves && e.time == f.time && e.litCount == f.litCount
+        && java.util.Arrays.equals(e.lit, f.lit);
+  }
+
+  void testRoundTrip(Tester t) throws IOException {
+    GameEngine game = this.played();
+    byte[] bytes = Snapshot.save(game);
+    t.checkExpect(bytes.length, 48 + "prim".length() + 63);
+    GameEngine back = Snapshot.load(bytes);
+    t.checkExpect(this.same(game, back), true);
+    t.checkExpect(back.generator.name(), "prim");
+    t.checkExpect(back.scrambler.unique, false);
+    // and it carries on the same way
+    game.rotate(10);
+    back.rotate(10);
+    game.moveStation(PackedBoard.TOP);
+    back.moveStation(PackedBoard.TOP);
+    t.checkExpect(this.same(game, back), true);
+    t.checkExpect(java.util.Arrays.equals(Snapshot.save(back), Snapshot.save(game)), true);
+  }
+
+  void testBadSnapshot(Tester t) {
+    byte[] bytes = Snapshot.save(this.played());
+    String[] messages = new String[2];
+    try {
+      Snapshot.load(java.util.Arrays.copyOf(bytes, 60));
+    }
+    catch (IOException e) {
+      messages[0] = e.getMessage();
+    }
+    bytes[3] = 0;
+    try {
+      Snapshot.load(bytes);
+    }
+    catch (IOException e) {
+      messages[1] = e.getMessage();
+    }
+    t.checkExpect(messages[0], "snapshot cut short");
+    t.checkExpect(messages[1], "not a snapshot of a game");
+  }
+
+  void testAutosave(Tester t) throws IOException {
+    File f = File.createTempFile("game", ".lems");
+    f.deleteOnExit();
+    GameEngine game = this.played();
+    game.autosave = new Autosave(f, 3);
+    // the game is two seconds in, so the third saves and the fourth does not
+    game.tick();
+    game.autosave.await();
+    t.checkExpect(game.autosave.saved, 1L);
+    t.checkExpect(this.same(Snapshot.read(f), game), true);
+    game.tick();
+    t.checkExpect(game.autosave.saved, 1L);
+    t.checkExpect(game.autosave.failed, 0L);
+    t.checkExpect(new File(f.getPath() + ".tmp").exists(), false);
+  }
+
+  void testAutosaveFails(Tester t) throws IOException {
+    // a directory that is not there cannot be written to
+    File dir = java.nio.file.Files.createTempDirectory("games").toFile();
+    dir.delete();
+    GameEngine game = this.played();
+    game.autosave = new Autosave(new File(dir, "game.lems"), 1);
+    game.tick();
+    boolean thrown = false;
+    try {
+      game.autosave.await();
+    }
+    catch (IOException e) {
+      thrown = true;
+    }
+    t.checkExpect(thrown, true);
+    t.checkExpect(game.autosave.saved, 0L);
+    t.checkExpect(game.autosave.failed, 1L);
+    t.checkExpect(game.autosave.lastError != null, true);
+    // a failure nobody waited for is still counted before the next save
+    game.tick();
+    while (game.autosave.collect()) {
+      Thread.yield();
+    }
+    game.tick();
+    game.autosave.collect();
+    t.checkExpect(game.autosave.failed >= 2, true);
+    t.checkExpect(game.autosave.saved, 0L);
+  }
+}
@@ -0,0 +1,916 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import tester.*;
+
+// finds how far to turn each cell of a packed board so that every cell is wired
+// to the power station within the given radius, by propagating the constraints
+// between neighboring wires and backtracking over the cells in an order that keeps
+// neighbors close together, starting over with more room and turns tried at random
+// whenever a run of the search gets stuck
+//
+// usage: java Solver width height [seed] [radius]
+class Solver {
+  // each mask turned clockwise 0 to 3 times, by mask and turns
+  static final int[][] TURNED = new int[16][4];
+  // the wires that every turn, or any turn, in a set of turns gives a mask,
+  // by mask and set of turns
+  static final int[][] ALWAYS = new int[16][16];
+  static final int[][] EVER = new int[16][16];
+  // the slots of state the search can undo, kept in the trail
+  static final int DOMAIN = 0;
+  static final int PARENT = 1;
+  static final int SIZE = 2;
+  static final int OPEN = 3;
+  static final int JOINED = 4;
+  // how many of the most recently failed cells the search chooses first
+  static final int CONFLICTS = 4;
+
+  static {
+    for (int mask = 0; mask < 16; mask++) {
+      int m = mask;
+      for (int r = 0; r < 4; r++) {
+        TURNED[mask][r] = m;
+        m = PackedBoard.rotateMask(m);
+      }
+      for (int turns = 0; turns < 16; turns++) {
+        int always = PackedBoard.WIRES;
+        int ever = 0;
+        for (int r = 0; r < 4; r++) {
+          if ((turns & (1 << r)) != 0) {
+            always = always & TURNED[mask][r];
+            ever = ever | TURNED[mask][r];
+          }
+        }
+        ALWAYS[mask][turns] = always;
+        EVER[mask][turns] = ever;
+      }
+    }
+  }
+
+  PackedBoard board;
+  int station;
+  int radius;
+  int n;
+  // the wires of each cell as given
+  int[] base;
+  // the turns each cell may still take, as bits 0 to 3
+  int[] domain;
+  // the cells joined by wires known to be there, as a union-find without path
+  // compression so that every change can be undone
+  int[] parent;
+  int[] size;
+  // how many wire ends in each joined group might still lead somewhere
+  int[] open;
+  // whether each edge, by EdgeList id, has been joined
+  int[] joined;
+  int[][] state;
+  // whether the board has exactly the wires of a spanning tree, so any loop is wrong
+  boolean tree;
+  // every change made since the search started, so it can be undone
+  int[] trailWhere;
+  int[] trailOld;
+  int trailSize;
+  // the cells whose neighbors must be checked against them
+  int[] queue;
+  int head;
+  int tail;
+  int count;
+  boolean[] queued;
+  // scratch space for the reach check
+  int[] hops;
+  int[] reach;
+  // every cell in the order the search decides them, so cells next to each other
+  // on the board are decided close together in time
+  int[] order;
+  int orderSize;
+  // the cells whose choices failed most recently, most recent first, which are chosen
+  // again before any other so the search backs up straight to the choices that caused
+  // the failures
+  int[] conflicts;
+  // the position in the order before which every cell is decided
+  int cursor;
+
+  // the most choices the search may try before giving up
+  long limit;
+  // how many choices the last search tried, and how long it spent propagating and in all
+  long nodes;
+  long propagationNanos;
+  long nanos;
+  // did the last search give up before finishing
+  boolean gaveUp;
+  // how many more solutions the search passes over before it stops at one
+  int skip;
+  // did the last run of the search use up its budget of choices
+  boolean cutOff;
+  // how many times the last search started over with a larger budget, and the
+  // stream that picks turns at random after it has
+  int restarts;
+  SplittableRandom shuffle;
+
+  // the turns each cell may start with, or null for all of them
+  int[] given;
+  // the only cells the search chooses turns for, or null for all of them
+  boolean[] focus;
+  // the turn to try first for each cell, or null to try the fewest clicks first
+  int[] prefer;
+  // for a strip of columns cut from a larger board: whether wires may leave it
+  // on the left or the right, and how many cells the whole board has
+  boolean strip;
+  boolean openLeft;
+  boolean openRight;
+  int total;
+
+  Solver(PackedBoard board, int station, int radius) {
+    this.board = board;
+    this.station = station;
+    this.radius = radius;
+    this.n = board.size();
+    this.total = this.n;
+    this.limit = Long.MAX_VALUE;
+  }
+
+  // a solver for a strip of columns cut from a larger board with the given number of
+  // cells, starting from the given turns, whose wires may leave it on the sides that
+  // have neighboring strips; the station and radius are left to the whole board
+  Solver(PackedBoard strip, int[] given, boolean openLeft, boolean openRight,
+      int total, boolean tree) {
+    this(strip, 0);
+    this.given = given;
+    this.strip = true;
+    this.openLeft = openLeft;
+    this.openRight = openRight;
+    this.total = total;
+    this.tree = tree;
+  }
+
+  // a solver with no limit on how far cells may be from the station
+  Solver(PackedBoard board, int station) {
+    this(board, station, board.size());
+  }
+
+  public static void main(String[] args) {
+    int width = Integer.parseInt(args[0]);
+    int height = Integer.parseInt(args[1]);
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : GameEngine.freshSeed();
+    PackedBoard board = scrambled(width, height, seed);
+    int radius = args.length > 3 ? Integer.parseInt(args[3]) : board.size();
+
+    Solver solver = new Solver(board, 0, radius);
+    int[] turns = solver.solve();
+    System.out.println("seed " + seed + ": " + (turns == null ? "no solution"
+        : moves(turns) + " moves"));
+    System.out.printf("%d nodes, %.1f ms propagating, %.1f ms in all%n", solver.nodes,
+        solver.propagationNanos / 1e6, solver.nanos / 1e6);
+  }
+
+  // a board laid out by Kruskal's algorithm from the given seed with its station
+  // in the top left corner and every cell then turned at random
+  static PackedBoard scrambled(int width, int height, long seed) {
+    PackedBoard board = new PackedBoard(width, height);
+    SplittableRandom rand = new SplittableRandom(seed);
+    new KruskalGenerator().generate(board, rand);
+    board.set(0, PackedBoard.STATION, true);
+    for (int i = 0; i < board.size(); i++) {
+      for (int r = rand.nextInt(4); r > 0; r--) {
+        board.rotate(i);
+      }
+    }
+    return board;
+  }
+
+  // do the given turns wire every cell of the given board to the given station
+  // within the radius, with every wire meeting another
+  static boolean solves(PackedBoard board, int station, int radius, int[] turns) {
+    PackedBoard turned = new PackedBoard(board.width, board.height);
+    turned.cells = Arrays.copyOf(board.cells, board.size());
+    apply(turned, turns);
+    PowerField power = new PowerField(turned, station);
+    for (int i = 0; i < turned.size(); i++) {
+      if (!power.isConnected(i) || power.hops[i] >= radius) {
+        return false;
+      }
+      for (int dir : PowerField.DIRS) {
+        if (turned.has(i, dir) && !turned.connected(i, dir)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // the number of clicks it takes to turn every cell by the given turns
+  static int moves(int[] turns) {
+    int moves = 0;
+    for (int r : turns) {
+      moves = moves + r;
+    }
+    return moves;
+  }
+
+  // the number of different ways the given mask can be turned
+  static int period(int mask) {
+    if (TURNED[mask][1] == mask) {
+      return 1;
+    }
+    else if (TURNED[mask][2] == mask) {
+      return 2;
+    }
+    else {
+      return 4;
+    }
+  }
+
+  // the wires every remaining turn of the cell at the given index has
+  int always(int i) {
+    return ALWAYS[this.base[i]][this.domain[i]];
+  }
+
+  // the wires any remaining turn of the cell at the given index has
+  int ever(int i) {
+    return EVER[this.base[i]][this.domain[i]];
+  }
+
+  // the wire ends of the cell at the given index that may or may not be there,
+  // or that are certain to leave the strip
+  int undecided(int i) {
+    return Integer.bitCount(this.ever(i) & ~this.always(i))
+        + Integer.bitCount(this.always(i) & this.exits(i));
+  }
+
+  // the directions wires of the cell at the given index may leave the strip in
+  int exits(int i) {
+    int exits = 0;
+    if (this.openLeft && i < this.board.height) {
+      exits = exits | PackedBoard.LEFT;
+    }
+    if (this.openRight && i >= this.n - this.board.height) {
+      exits = exits | PackedBoard.RIGHT;
+    }
+    return exits;
+  }
+
+  // the turns for each cell that solve the board, each the fewest clicks for
+  // its wires, or null if there are none or the search gave up
+  int[] solve() {
+    long start = System.nanoTime();
+    this.nodes = 0;
+    this.propagationNanos = 0;
+    this.gaveUp = false;
+    this.restarts = 0;
+    int[] result = null;
+    if (this.setUp() && this.propagate()) {
+      int mark = this.trailSize;
+      long budget = Math.max(1000, this.n / 100);
+      this.shuffle = null;
+      while (true) {
+        result = this.search(Math.min(budget, this.limit - this.nodes));
+        if (result != null || !this.cutOff || this.nodes >= this.limit) {
+          this.gaveUp = result == null && this.cutOff;
+          break;
+        }
+        this.undo(mark);
+        this.restarts = this.restarts + 1;
+        budget = budget * 2;
+        this.shuffle = new SplittableRandom(this.restarts);
+      }
+    }
+    this.nanos = System.nanoTime() - start;
+    return result;
+  }
+
+  // a second way to solve the board, with some cell wired differently from the
+  // first way the search finds, or null if there is none or the search gave up;
+  // every choice is searched in order, without restarts, stopping at the second
+  int[] second() {
+    long start = System.nanoTime();
+    this.nodes = 0;
+    this.propagationNanos = 0;
+    this.gaveUp = false;
+    this.restarts = 0;
+    this.shuffle = null;
+    int[] result = null;
+    if (this.setUp() && this.propagate()) {
+      this.skip = 1;
+      result = this.search(this.limit);
+      this.gaveUp = result == null && this.cutOff;
+      this.skip = 0;
+    }
+    this.nanos = System.nanoTime() - start;
+    return result;
+  }
+
+  // how many cells propagating the constraints leaves with more than one turn, so
+  // that a search would have to choose, or -1 if it finds the board cannot be solved
+  int unforced() {
+    if (!this.setUp() || !this.propagate()) {
+      return -1;
+    }
+    int count = 0;
+    for (int i = 0; i < this.n; i++) {
+      if (Integer.bitCount(this.domain[i]) > 1) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  // fills the domains with every distinct turn that keeps the wires on the board
+  // and joins the wires that are already certain; false if the board cannot be solved
+  boolean setUp() {
+    int n = this.n;
+    this.base = new int[n];
+    this.domain = new int[n];
+    this.parent = new int[n];
+    this.size = new int[n];
+    this.open = new int[n];
+    this.joined = new int[2 * n];
+    this.state = new int[][] {this.domain, this.parent, this.size, this.open, this.joined};
+    this.trailWhere = new int[64];
+    this.trailOld = new int[64];
+    this.trailSize = 0;
+    this.queue = new int[n];
+    this.head = 0;
+    this.tail = 0;
+    this.count = 0;
+    this.queued = new boolean[n];
+    this.hops = new int[n];
+    this.reach = new int[n];
+    this.order = new int[n];
+    this.orderSize = 0;
+    int side = 1;
+    while (side < this.board.width || side < this.board.height) {
+      side = side * 2;
+    }
+    this.addOrder(0, 0, side);
+
+    long ends = 0;
+    for (int i = 0; i < n; i++) {
+      this.base[i] = this.board.mask(i) & PackedBoard.WIRES;
+      this.domain[i] = (1 << period(this.base[i])) - 1;
+      if (this.given != null) {
+        this.domain[i] = this.domain[i] & this.given[i];
+      }
+      this.parent[i] = i;
+      this.size[i] = 1;
+      this.open[i] = this.undecided(i);
+      ends = ends + Integer.bitCount(this.base[i]);
+    }
+    if (!this.strip && ends < 2L * (n - 1)) {
+      return false;
+    }
+    if (!this.strip) {
+      this.tree = ends == 2L * (n - 1);
+    }
+
+    for (int i = 0; i < n; i++) {
+      int always = this.always(i);
+      for (int dir : PowerField.DIRS) {
+        if ((always & dir) != 0 && !this.join(i, dir)) {
+          return false;
+        }
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      int keep = 0;
+      for (int r = 0; r < 4; r++) {
+        if ((this.domain[i] & (1 << r)) != 0 && this.fits(i, TURNED[this.base[i]][r])) {
+          keep = keep | (1 << r);
+        }
+      }
+      if (!this.restrict(i, keep)) {
+        return false;
+      }
+      this.enqueue(i);
+    }
+    return true;
+  }
+
+  // adds the cells of the given square of the board to the order, a quarter at a time
+  void addOrder(int col, int row, int side) {
+    if (col >= this.board.width || row >= this.board.height) {
+      return;
+    }
+    if (side == 1) {
+      this.order[this.orderSize] = this.board.index(col, row);
+      this.orderSize = this.orderSize + 1;
+    }
+    else {
+      int half = side / 2;
+      this.addOrder(col, row, half);
+      this.addOrder(col, row + half, half);
+      this.addOrder(col + half, row, half);
+      this.addOrder(col + half, row + half, half);
+    }
+  }
+
+  // do the given wires of the cell at the given index stay on the board
+  boolean fits(int i, int wires) {
+    for (int dir : PowerField.DIRS) {
+      if ((wires & dir) != 0 && this.board.neighbor(i, dir) < 0
+          && (this.exits(i) & dir) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // changes one slot of the state, remembering its old value
+  void set(int which, int i, int value) {
+    if (this.trailSize == this.trailWhere.length) {
+      this.trailWhere = Arrays.copyOf(this.trailWhere, this.trailSize * 2);
+      this.trailOld = Arrays.copyOf(this.trailOld, this.trailSize * 2);
+    }
+    this.trailWhere[this.trailSize] = which << 29 | i;
+    this.trailOld[this.trailSize] = this.state[which][i];
+    this.trailSize = this.trailSize + 1;
+    this.state[which][i] = value;
+  }
+
+  // undoes every change back to the given length of the trail
+  void undo(int mark) {
+    while (this.trailSize > mark) {
+      this.trailSize = this.trailSize - 1;
+      int where = this.trailWhere[this.trailSize];
+      this.state[where >>> 29][where & ((1 << 29) - 1)] = this.trailOld[this.trailSize];
+    }
+  }
+
+  // the root of the group of cells joined to the cell at the given index
+  int find(int i) {
+    while (this.parent[i] != i) {
+      i = this.parent[i];
+    }
+    return i;
+  }
+
+  // the EdgeList id of the edge from the cell at the given index to its given
+  // neighbor in the given direction
+  static int edge(int i, int dir, int j) {
+    if (dir == PackedBoard.BOTTOM || dir == PackedBoard.RIGHT) {
+      return 2 * i + (dir == PackedBoard.BOTTOM ? EdgeList.DOWN : EdgeList.ACROSS);
+    }
+    else {
+      return 2 * j + (dir == PackedBoard.TOP ? EdgeList.DOWN : EdgeList.ACROSS);
+    }
+  }
+
+  // can a wire still be laid between the cell at the given index and its given
+  // neighbor in the given direction: not if it would close a loop, or use up the
+  // last open ends of both groups while leaving part of the board out
+  boolean mayJoin(int i, int dir, int j) {
+    if (this.joined[edge(i, dir, j)] != 0) {
+      return true;
+    }
+    int a = this.find(i);
+    int b = this.find(j);
+    if (a == b) {
+      return !this.tree;
+    }
+    return this.open[a] + this.open[b] > 2 || this.size[a] + this.size[b] == this.total;
+  }
+
+  // joins the cell at the given index to its neighbor in the given direction,
+  // false if that closes a loop on a board that can have none
+  boolean join(int i, int dir) {
+    int j = this.board.neighbor(i, dir);
+    if (j < 0) {
+      return (this.exits(i) & dir) != 0;
+    }
+    int edge = edge(i, dir, j);
+    if (this.joined[edge] != 0) {
+      return true;
+    }
+    this.set(JOINED, edge, 1);
+    int a = this.find(i);
+    int b = this.find(j);
+    if (a == b) {
+      return !this.tree;
+    }
+    if (this.size[a] < this.size[b]) {
+      int swap = a;
+      a = b;
+      b = swap;
+    }
+    this.set(PARENT, b, a);
+    this.set(SIZE, a, this.size[a] + this.size[b]);
+    this.set(OPEN, a, this.open[a] + this.open[b]);
+    return true;
+  }
+
+  // narrows the turns of the cell at the given index to the given ones, joining any
+  // wires that become certain; false if that leaves no turns, closes a loop,
+  // or cuts a group of cells off from the rest of the board
+  boolean restrict(int i, int keep) {
+    int old = this.domain[i];
+    keep = keep & old;
+    if (keep == old) {
+      return true;
+    }
+    if (keep == 0) {
+      return false;
+    }
+    int oldAlways = this.always(i);
+    int oldUndecided = this.undecided(i);
+    this.set(DOMAIN, i, keep);
+    int root = this.find(i);
+    this.set(OPEN, root, this.open[root] - oldUndecided + this.undecided(i));
+
+    int certain = this.always(i) & ~oldAlways;
+    for (int dir : PowerField.DIRS) {
+      if ((certain & dir) != 0 && !this.join(i, dir)) {
+        return false;
+      }
+    }
+    root = this.find(i);
+    if (this.open[root] == 0 && this.size[root] < this.total) {
+      return false;
+    }
+    this.enqueue(i);
+    return true;
+  }
+
+  // remembers to check the neighbors of the cell at the given index
+  void enqueue(int i) {
+    if (!this.queued[i]) {
+      this.queued[i] = true;
+      this.queue[this.tail] = i;
+      this.tail = (this.tail + 1) % this.n;
+      this.count = this.count + 1;
+    }
+  }
+
+  // narrows every neighbor to the turns that agree with the cells that changed,
+  // until nothing changes; false if some cell is left with no turns
+  boolean propagate() {
+    long start = System.nanoTime();
+    boolean ok = true;
+    while (this.count > 0) {
+      int i = this.queue[this.head];
+      this.queued[i] = false;
+      this.head = (this.head + 1) % this.n;
+      this.count = this.count - 1;
+      ok = ok && this.revise(i);
+    }
+    this.propagationNanos = this.propagationNanos + System.nanoTime() - start;
+    return ok;
+  }
+
+  // narrows the cell at the given index to the wires that may still be laid,
+  // then its neighbors to the turns whose wires match its own
+  boolean revise(int i) {
+    int banned = 0;
+    for (int dir : PowerField.DIRS) {
+      int j = this.board.neighbor(i, dir);
+      if (j >= 0 && (this.ever(i) & dir) != 0 && !this.mayJoin(i, dir, j)) {
+        banned = banned | dir;
+      }
+    }
+    // the last open end of a group that is not the whole board must be a wire
+    int root = this.find(i);
+    int needed = 0;
+    if (this.open[root] == 1 && this.size[root] < this.total) {
+      needed = this.ever(i) & ~this.always(i);
+    }
+    if (banned != 0 || needed != 0) {
+      int keep = 0;
+      for (int r = 0; r < 4; r++) {
+        int wires = TURNED[this.base[i]][r];
+        if ((wires & banned) == 0 && (wires & needed) == needed) {
+          keep = keep | (1 << r);
+        }
+      }
+      if (!this.restrict(i, keep)) {
+        return false;
+      }
+    }
+    int always = this.always(i);
+    int ever = this.ever(i);
+    for (int dir : PowerField.DIRS) {
+      int j = this.board.neighbor(i, dir);
+      if (j >= 0) {
+        int back = PackedBoard.opposite(dir);
+        int keep = 0;
+        for (int r = 0; r < 4; r++) {
+          if ((this.domain[j] & (1 << r)) != 0) {
+            boolean wired = (TURNED[this.base[j]][r] & back) != 0;
+            if (wired ? (ever & dir) != 0 : (always & dir) == 0) {
+              keep = keep | (1 << r);
+            }
+          }
+        }
+        if (!this.restrict(j, keep)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // the undecided cell that failed most recently, or else the first undecided cell in order
+  // from the given position, or -1 if every cell is decided
+  int pick(int from) {
+    this.cursor = from;
+    for (int last : this.conflicts) {
+      if (last >= 0 && Integer.bitCount(this.domain[last]) > 1
+          && (this.focus == null || this.focus[last])) {
+        return last;
+      }
+    }
+    for (int k = from; k < this.n; k++) {
+      int i = this.order[k];
+      if (Integer.bitCount(this.domain[i]) > 1 && (this.focus == null || this.focus[i])) {
+        this.cursor = k;
+        return i;
+      }
+    }
+    this.cursor = this.n;
+    return -1;
+  }
+
+  // can every cell still reach the station within the radius over wires that might be there
+  boolean reachable() {
+    Arrays.fill(this.hops, -1);
+    this.hops[this.station] = 0;
+    this.reach[0] = this.station;
+    int head = 0;
+    int tail = 1;
+    while (head < tail) {
+      int u = this.reach[head];
+      head = head + 1;
+      int ever = this.ever(u);
+      for (int dir : PowerField.DIRS) {
+        int v = this.board.neighbor(u, dir);
+        if ((ever & dir) != 0 && v >= 0 && this.hops[v] < 0
+            && (this.ever(v) & PackedBoard.opposite(dir)) != 0) {
+          this.hops[v] = this.hops[u] + 1;
+          if (this.hops[v] >= this.radius) {
+            return false;
+          }
+          this.reach[tail] = v;
+          tail = tail + 1;
+        }
+      }
+    }
+    return tail == this.n;
+  }
+
+  // backtracks over the turns of the cells in order, going back first to the cells
+  // that failed most recently, and trying the preferred turn or else the fewest
+  // clicks first; null if there are none or the budget of choices runs out
+  int[] search(long budget) {
+    long stop = this.nodes + budget;
+    this.cutOff = false;
+    int[] cells = new int[16];
+    int[] tries = new int[16];
+    int[] marks = new int[16];
+    int[] starts = new int[16];
+    int depth = 0;
+    this.conflicts = new int[CONFLICTS];
+    Arrays.fill(this.conflicts, -1);
+    // with a radius as large as the board only the finished board needs checking,
+    // and only for loops where the wires are more than a spanning tree's
+    boolean everyNode = this.radius < this.n && !this.strip;
+    // a strip or a partial search leaves the whole board to be checked by the caller
+    boolean partial = this.strip || this.focus != null;
+    boolean ok = !everyNode || this.reachable();
+    while (true) {
+      int i = ok ? this.pick(depth > 0 ? starts[depth - 1] : 0) : -1;
+      if (ok && i < 0) {
+        boolean solved = everyNode || partial || this.tree || this.reachable();
+        if (solved && this.skip == 0) {
+          int[] turns = new int[this.n];
+          for (int k = 0; k < this.n; k++) {
+            turns[k] = Integer.numberOfTrailingZeros(this.domain[k]);
+          }
+          return turns;
+        }
+        if (solved) {
+          this.skip = this.skip - 1;
+        }
+        ok = false;
+      }
+      if (ok) {
+        if (depth == cells.length) {
+          cells = Arrays.copyOf(cells, depth * 2);
+          tries = Arrays.copyOf(tries, depth * 2);
+          marks = Arrays.copyOf(marks, depth * 2);
+          starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth] = this.cursor;
+        cells[depth] = i;
+        tries[depth] = this.domain[i];
+        marks[depth] = this.trailSize;
+        depth = depth + 1;
+      }
+      while (depth > 0 && tries[depth - 1] == 0) {
+        depth = depth - 1;
+      }
+      if (depth == 0) {
+        return null;
+      }
+      if (this.nodes >= stop) {
+        this.cutOff = true;
+        return null;
+      }
+      this.nodes = this.nodes + 1;
+      this.undo(marks[depth - 1]);
+      int turn = tries[depth - 1] & -tries[depth - 1];
+      if (this.shuffle != null) {
+        for (int skip = this.shuffle.nextInt(Integer.bitCount(tries[depth - 1])); skip > 0; skip--) {
+          turn = (tries[depth - 1] & ~(2 * turn - 1)) & -(tries[depth - 1] & ~(2 * turn - 1));
+        }
+      }
+      if (this.prefer != null && (tries[depth - 1] & (1 << this.prefer[cells[depth - 1]])) != 0) {
+        turn = 1 << this.prefer[cells[depth - 1]];
+      }
+      tries[depth - 1] = tries[depth - 1] & ~turn;
+      ok = this.restrict(cells[depth - 1], turn) && this.propagate()
+          && (!everyNode || this.reachable());
+      if (!ok) {
+        this.conflict(cells[depth - 1]);
+      }
+    }
+  }
+
+  // remembers that the choice of the cell at the given index failed
+  void conflict(int i) {
+    int k = 0;
+    while (k < CONFLICTS - 1 && this.conflicts[k] != i) {
+      k = k + 1;
+    }
+    System.arraycopy(this.conflicts, 0, this.conflicts, 1, k);
+    this.conflicts[0] = i;
+  }
+
+  // turns every cell of the given board by the given turns
+  static void apply(PackedBoard board, int[] turns) {
+    for (int i = 0; i < turns.length; i++) {
+      for (int r = 0; r < turns[i]; r++) {
+        board.rotate(i);
+      }
+    }
+  }
+}
+
+class ExamplesSolver {
+  // is every cell of the given board wired to the given station within the radius
+  boolean solved(PackedBoard b, int station, int radius) {
+    PowerField power = new PowerField(b, station);
+    for (int i = 0; i < b.size(); i++) {
+      if (!power.isConnected(i) || power.hops[i] >= radius) {
+        return false;
+      }
+      for (int dir : PowerField.DIRS) {
+        if (b.has(i, dir) && !b.connected(i, dir)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  void testTurned(Tester t) {
+    t.checkExpect(Solver.TURNED[PackedBoard.TOP][1], PackedBoard.RIGHT);
+    t.checkExpect(Solver.TURNED[PackedBoard.TOP][3], PackedBoard.LEFT);
+    t.checkExpect(Solver.period(0), 1);
+    t.checkExpect(Solver.period(PackedBoard.WIRES), 1);
+    t.checkExpect(Solver.period(PackedBoard.TOP | PackedBoard.BOTTOM), 2);
+    t.checkExpect(Solver.period(PackedBoard.TOP | PackedBoard.RIGHT), 4);
+  }
+
+  void testSolveSmall(Tester t) {
+    // a 2x1 board with both wires pointing up
+    PackedBoard b = new PackedBoard(2, 1);
+    b.set(0, PackedBoard.TOP | PackedBoard.STATION, true);
+    b.set(1, PackedBoard.TOP, true);
+    Solver s = new Solver(b, 0);
+    int[] turns = s.solve();
+    t.checkExpect(turns[0], 1);
+    t.checkExpect(turns[1], 3);
+    t.checkExpect(Solver.moves(turns), 4);
+    Solver.apply(b, turns);
+    t.checkExpect(this.solved(b, 0, 2), true);
+  }
+
+  void testSolveScrambled(Tester t) {
+    for (long seed = 1; seed <= 20; seed++) {
+      PackedBoard b = Solver.scrambled(12, 9, seed);
+      int[] turns = new Solver(b, 0).solve();
+      t.checkExpect(turns != null, true);
+      Solver.apply(b, turns);
+      t.checkExpect(this.solved(b, 0, b.size()), true);
+    }
+  }
+
+  void testSolveLarge(Tester t) {
+    PackedBoard b = Solver.scrambled(100, 100, 11);
+    Solver s = new Solver(b, 0);
+    int[] turns = s.solve();
+    Solver.apply(b, turns);
+    t.checkExpect(this.solved(b, 0, b.size()), true);
+    t.checkExpect(s.propagationNanos > 0, true);
+    t.checkExpect(s.nanos >= s.propagationNanos, true);
+  }
+
+  void testRadius(Tester t) {
+    // a straight line of three cells needs a radius of at least three
+    PackedBoard b = new PackedBoard(3, 1);
+    b.set(0, PackedBoard.TOP | PackedBoard.STATION, true);
+    b.set(1, PackedBoard.TOP | PackedBoard.BOTTOM, true);
+    b.set(2, PackedBoard.TOP, true);
+    t.checkExpect(new Solver(b, 0, 2).solve(), null);
+    t.checkExpect(new Solver(b, 0, 3).solve() != null, true);
+  }
+
+  void testUnsolvable(Tester t) {
+    // two cells with a wire each can never be joined to a third
+    PackedBoard b = new PackedBoard(3, 1);
+    b.set(0, PackedBoard.TOP | PackedBoard.STATION, true);
+    b.set(1, PackedBoard.TOP, true);
+    b.set(2, PackedBoard.TOP, true);
+    t.checkExpect(new Solver(b, 0).solve(), null);
+
+    // a closed loop of four corners leaves nothing for the rest of the board
+    PackedBoard loop = new PackedBoard(3, 2);
+    int corner = PackedBoard.TOP | PackedBoard.RIGHT;
+    loop.set(0, corner | PackedBoard.STATION, true);
+    loop.set(1, corner, true);
+    loop.set(2, corner, true);
+    loop.set(3, corner, true);
+    loop.set(4, PackedBoard.TOP, true);
+    loop.set(5, PackedBoard.TOP, true);
+    Solver s = new Solver(loop, 0);
+    t.checkExpect(s.solve(), null);
+    t.checkExpect(s.gaveUp, false);
+  }
+
+  void testSolves(Tester t) {
+    PackedBoard b = Solver.scrambled(15, 10, 8);
+    int[] turns = new Solver(b, 0).solve();
+    t.checkExpect(Solver.solves(b, 0, b.size(), turns), true);
+    t.checkExpect(Solver.solves(b, 0, b.size(), new int[b.size()]), false);
+  }
+
+  void testFocus(Tester t) {
+    // deciding only the first column leaves the rest of the board open
+    PackedBoard b = Solver.scrambled(20, 10, 4);
+    Solver s = new Solver(b, 0);
+    s.focus = new boolean[b.size()];
+    for (int i = 0; i < 10; i++) {
+      s.focus[i] = true;
+    }
+    t.checkExpect(s.solve() != null, true);
+    boolean decided = true;
+    for (int i = 0; i < 10; i++) {
+      decided = decided && Integer.bitCount(s.domain[i]) == 1;
+    }
+    t.checkExpect(decided, true);
+  }
+
+  void testPrefer(Tester t) {
+    PackedBoard b = Solver.scrambled(12, 12, 6);
+    int[] first = new Solver(b, 0).solve();
+    Solver s = new Solver(b, 0);
+    s.prefer = first;
+    t.checkExpect(s.solve(), first);
+    t.checkExpect(s.nodes <= 144, true);
+  }
+
+  void testStrip(Tester t) {
+    // the middle of a board, with wires leaving on both sides
+    PackedBoard b = new PackedBoard(1, 2);
+    b.set(0, PackedBoard.LEFT | PackedBoard.BOTTOM, true);
+    b.set(1, PackedBoard.TOP | PackedBoard.RIGHT, true);
+    Solver s = new Solver(b, new int[] {15, 15}, true, true, 10, true);
+    int[] turns = s.solve();
+    t.checkExpect(turns != null, true);
+    // with no sides open the two cells could only close each other off
+    Solver closed = new Solver(b, new int[] {15, 15}, false, false, 10, true);
+    t.checkExpect(closed.solve(), null);
+  }
+
+  void testSecond(Tester t) {
+    // this board can be wired up two ways: the way it was laid out, and the second
+    PackedBoard b = new PackedBoard(8, 8);
+    new KruskalGenerator().generate(b, new SplittableRandom(21));
+    Solver two = new Solver(b, 0);
+    two.prefer = new int[b.size()];
+    int[] second = two.second();
+    t.checkExpect(Solver.moves(second) > 0, true);
+    t.checkExpect(Solver.solves(b, 0, b.size(), second), true);
+    PackedBoard one = new PackedBoard(8, 8);
+    new KruskalGenerator().generate(one, new SplittableRandom(1));
+    Solver unique = new Solver(one, 0);
+    t.checkExpect(unique.second(), null);
+    t.checkExpect(unique.gaveUp, false);
+  }
+
+  void testLimit(Tester t) {
+    PackedBoard b = Solver.scrambled(30, 30, 3);
+    Solver s = new Solver(b, 0);
+    s.limit = 0;
+    int[] turns = s.solve();
+    t.checkExpect(turns == null || s.nodes == 0, true);
+    t.checkExpect(turns == null, s.gaveUp);
+  }
+}
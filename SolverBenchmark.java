@@ -0,0 +1,44 @@
+import java.util.concurrent.ForkJoinPool;
+
+// times the sequential solver on one large scrambled board, then the parallel
+// solver on 1 up to N cores to show how it scales
+//
+// usage: java SolverBenchmark [size] [repetitions] [seed] [cores]
+class SolverBenchmark {
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int reps = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+    int cores = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+    System.out.println("board " + size + "x" + size + ", best of " + reps + ", "
+        + cores + " cores");
+    PackedBoard board = Solver.scrambled(size, size, seed);
+
+    long sequential = Long.MAX_VALUE;
+    for (int r = 0; r <= reps; r++) {
+      Solver s = new Solver(board, 0);
+      s.solve();
+      if (r > 0) {
+        sequential = Math.min(sequential, s.nanos);
+      }
+    }
+    System.out.printf("sequential   %8.1f ms%n", sequential / 1e6);
+
+    for (int p = 1; p <= cores; p++) {
+      ForkJoinPool pool = new ForkJoinPool(p);
+      long best = Long.MAX_VALUE;
+      ParallelSolver s = new ParallelSolver(board, 0, board.size(), pool);
+      for (int r = 0; r <= reps; r++) {
+        s.solve();
+        if (r > 0) {
+          best = Math.min(best, s.nanos);
+        }
+      }
+      pool.shutdown();
+      System.out.printf("parallel x%-2d %8.1f ms  speedup %.2f  %d strips%s%n", p, best / 1e6,
+          (double) sequential / best, s.strips, s.fellBack ? ", fell back"
+          : s.repairs > 0 ? ", mended" : "");
+    }
+  }
+}
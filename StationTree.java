@@ -0,0 +1,247 @@
+import java.util.Arrays;
+import tester.*;
+
+// the wires reaching out from the power station, walked depth-first so that every
+// subtree is a run of positions in the order of the walk; when the wires form a tree
+// the station can then move along one of them by shifting the hops of the cells on
+// either side of it by one, which is two changes to a Fenwick tree of shifts
+// instead of a search of the board
+//
+// the hops of the field are left as they were when the tree was walked or last
+// settled, and each cell's hops are that plus the shift at its position until they
+// are settled again, in one pass in the order of the walk
+class StationTree {
+  // the cells wired to the station, in the order the walk reached them
+  int[] order;
+  // the position of each cell in the walk, or -1 if it was not reached,
+  // and the last position of the subtree under it
+  int[] enter;
+  int[] exit;
+  // the hops of each cell when it was last settled
+  int[] base;
+  // the Fenwick tree of the shift of each position from its base, over
+  // positions 1 to size, besides the shift of every position at once
+  int[] shifts;
+  int offset;
+  // how many cells the walk reached
+  int size;
+  // did the walk find no wire closing a loop
+  boolean acyclic;
+  // have the hops moved on since they were last settled
+  boolean lazy;
+
+  StationTree(int n) {
+    this.order = new int[n];
+    this.enter = new int[n];
+    this.exit = new int[n];
+    this.base = new int[n];
+    this.shifts = new int[n + 1];
+  }
+
+  // walks the wires from the power station of the given field, whose hops must be
+  // settled, stopping at the first loop
+  void walk(PowerField power) {
+    PackedBoard cells = power.cells;
+    int[] stack = power.queue;
+    int[] parent = power.queueHops;
+    Arrays.fill(this.enter, -1);
+    this.acyclic = true;
+    this.lazy = false;
+    this.offset = 0;
+    this.size = 0;
+    int top = 1;
+    stack[0] = power.station;
+    parent[power.station] = -1;
+
+    // a cell is -2 from when it is found until it is reached
+    while (top > 0) {
+      top = top - 1;
+      int u = stack[top];
+      this.enter[u] = this.size;
+      this.order[this.size] = u;
+      this.base[u] = power.hops[u];
+      this.exit[u] = 1;
+      this.size = this.size + 1;
+      for (int dir : PowerField.DIRS) {
+        if (cells.connected(u, dir)) {
+          int v = cells.neighbor(u, dir);
+          if (v != parent[u]) {
+            if (this.enter[v] != -1) {
+              this.acyclic = false;
+              return;
+            }
+            this.enter[v] = -2;
+            parent[v] = u;
+            stack[top] = v;
+            top = top + 1;
+          }
+        }
+      }
+    }
+
+    // each cell is reached after the one before it, so counting back from the end
+    // finds the size of every subtree before the cell at its top
+    for (int p = this.size - 1; p >= 0; p--) {
+      int u = this.order[p];
+      if (parent[u] >= 0) {
+        this.exit[parent[u]] = this.exit[parent[u]] + this.exit[u];
+      }
+      this.exit[u] = p + this.exit[u] - 1;
+    }
+    Arrays.fill(this.shifts, 0, this.size + 1, 0);
+  }
+
+  // moves the power station from the cell at one given index to its neighbor at the
+  // other: the cells on the neighbor's side of the wire come one hop closer and all
+  // the others go one hop farther
+  void move(int from, int to) {
+    if (this.enter[to] > this.enter[from] && this.enter[to] <= this.exit[from]) {
+      this.offset = this.offset + 1;
+      this.add(this.enter[to], this.exit[to], -2);
+    }
+    else {
+      this.offset = this.offset - 1;
+      this.add(this.enter[from], this.exit[from], 2);
+    }
+    this.lazy = true;
+  }
+
+  // shifts the given run of positions by the given amount
+  void add(int from, int to, int amount) {
+    this.bump(from, amount);
+    this.bump(to + 1, -amount);
+  }
+
+  // shifts every position from the given one on by the given amount
+  void bump(int p, int amount) {
+    for (int k = p + 1; k <= this.size; k = k + (k & -k)) {
+      this.shifts[k] = this.shifts[k] + amount;
+    }
+  }
+
+  // how far the given position has shifted from its base
+  int shift(int p) {
+    int s = this.offset;
+    for (int k = p + 1; k > 0; k = k - (k & -k)) {
+      s = s + this.shifts[k];
+    }
+    return s;
+  }
+
+  // the hops of the cell at the given index, which the walk reached
+  int hops(int i) {
+    return this.base[i] + this.shift(this.enter[i]);
+  }
+
+  // writes the hops of every cell the walk reached into the given field, taking the
+  // Fenwick tree apart into the change at each position and adding those up in order
+  void settle(PowerField power) {
+    for (int k = this.size; k >= 1; k--) {
+      int j = k + (k & -k);
+      if (j <= this.size) {
+        this.shifts[j] = this.shifts[j] - this.shifts[k];
+      }
+    }
+    int run = this.offset;
+    for (int p = 0; p < this.size; p++) {
+      run = run + this.shifts[p + 1];
+      int u = this.order[p];
+      power.hops[u] = this.base[u] + run;
+      this.base[u] = power.hops[u];
+    }
+    Arrays.fill(this.shifts, 0, this.size + 1, 0);
+    this.offset = 0;
+    this.lazy = false;
+  }
+}
+
+class ExamplesStationTree {
+  // moves the station of the given field along random wires, checking the hops of
+  // every cell against a fresh search after each move, and settling now and then
+  boolean wander(PowerField power, int steps, long seed) {
+    java.util.SplittableRandom rand = new java.util.SplittableRandom(seed);
+    boolean same = true;
+    for (int s = 0; s < steps; s++) {
+      int dir = PowerField.DIRS[rand.nextInt(4)];
+      if (power.cells.connected(power.station, dir)) {
+        int to = power.cells.neighbor(power.station, dir);
+        power.cells.set(power.station, PackedBoard.STATION, false);
+        power.cells.set(to, PackedBoard.STATION, true);
+        power.moveStation(to);
+        PowerField fresh = new PowerField(power.cells, to);
+        for (int i = 0; i < power.cells.size(); i++) {
+          same = same && power.hops(i) == fresh.hops[i];
+        }
+        if (s % 7 == 0) {
+          power.settle();
+          same = same && Arrays.equals(power.hops, fresh.hops);
+        }
+      }
+    }
+    power.settle();
+    return same && Arrays.equals(power.hops, new PowerField(power.cells, power.station).hops);
+  }
+
+  void testTree(Tester t) {
+    PackedBoard b = new PackedBoard(9, 8);
+    b.set(0, PackedBoard.STATION, true);
+    new KruskalGenerator().generate(b, new java.util.SplittableRandom(6));
+    PowerField power = new PowerField(b, 0);
+    t.checkExpect(this.wander(power, 400, 6L), true);
+    t.checkExpect(power.tree.acyclic, true);
+    t.checkExpect(power.tree.size, 72);
+    // the whole board hangs under the cell the walk started from
+    t.checkExpect(power.tree.exit[power.tree.order[0]], 71);
+  }
+
+  void testPartTree(Tester t) {
+    // a board turned away from its solution, so only part of it reaches the station
+    PackedBoard b = new PackedBoard(8, 8);
+    b.set(0, PackedBoard.STATION, true);
+    new KruskalGenerator().generate(b, new java.util.SplittableRandom(2));
+    for (int i = 3; i < b.size(); i = i + 5) {
+      b.rotate(i);
+    }
+    PowerField power = new PowerField(b, 0);
+    t.checkExpect(this.wander(power, 300, 2L), true);
+    t.checkExpect(power.tree.size < 64, true);
+  }
+
+  void testLoop(Tester t) {
+    // a ring of four cells with a tail, which has to be searched again on each move
+    PackedBoard b = new PackedBoard(3, 2);
+    b.cells[0] = (byte) (PackedBoard.RIGHT | PackedBoard.BOTTOM | PackedBoard.STATION);
+    b.cells[1] = (byte) (PackedBoard.TOP | PackedBoard.RIGHT);
+    b.cells[2] = (byte) (PackedBoard.LEFT | PackedBoard.BOTTOM | PackedBoard.RIGHT);
+    b.cells[3] = (byte) (PackedBoard.LEFT | PackedBoard.TOP);
+    b.cells[4] = (byte) PackedBoard.LEFT;
+    PowerField power = new PowerField(b, 0);
+    b.set(0, PackedBoard.STATION, false);
+    b.set(2, PackedBoard.STATION, true);
+    t.checkExpect(power.moveStation(2), false);
+    t.checkExpect(power.tree.acyclic, false);
+    t.checkExpect(power.hops, new int[] {1, 2, 0, 1, 1, -1});
+    t.checkExpect(this.wander(power, 50, 1L), true);
+  }
+
+  void testRotateAfterMoves(Tester t) {
+    // a rotation works from settled hops, and the tree is walked again after it
+    PackedBoard b = new PackedBoard(6, 6);
+    b.set(0, PackedBoard.STATION, true);
+    new KruskalGenerator().generate(b, new java.util.SplittableRandom(9));
+    PowerField power = new PowerField(b, 0);
+    this.wander(power, 40, 9L);
+    int dir = b.connectRight(power.station) ? PackedBoard.RIGHT
+        : b.connectBelow(power.station) ? PackedBoard.BOTTOM
+        : b.connectLeft(power.station) ? PackedBoard.LEFT : PackedBoard.TOP;
+    int to = b.neighbor(power.station, dir);
+    b.set(power.station, PackedBoard.STATION, false);
+    b.set(to, PackedBoard.STATION, true);
+    t.checkExpect(power.moveStation(to), true);
+    t.checkExpect(power.tree.lazy, true);
+    power.rotate(14);
+    t.checkExpect(power.tree.lazy, false);
+    t.checkExpect(power.hops, new PowerField(b, power.station).hops);
+    t.checkExpect(this.wander(power, 60, 10L), true);
+  }
+}
@@ -0,0 +1,91 @@
+import java.awt.Color;
+import javalib.worldimages.*;
+
+// shared images of every kind of tile for one tile size and power radius:
+// 16 wire masks, with or without the power station, in each color of the palette
+class TileCache {
+  // the palette of each radius built so far, shared by every game with that radius,
+  // so games with different radii do not replace each other's
+  static volatile Color[][] palettes = new Color[16][];
+
+  int size;
+  int radius;
+  // the wire colors: gray, then one for each distance from 1 to radius,
+  // then yellow for the power station
+  Color[] palette;
+  // the image of each tile, by its shade times 32 plus its mask, built when first drawn
+  WorldImage[] tiles;
+
+  TileCache(int size, int radius) {
+    this.size = size;
+    this.radius = radius;
+    this.palette = palette(radius);
+    this.tiles = new WorldImage[32 * this.palette.length];
+  }
+
+  // the wire colors for the given radius, the same array every time
+  static Color[] palette(int radius) {
+    Color[][] all = palettes;
+    if (radius < all.length && all[radius] != null) {
+      return all[radius];
+    }
+    return buildPalette(radius);
+  }
+
+  // builds the wire colors for the given radius, unless another thread got there
+  // first, and shares them
+  static synchronized Color[] buildPalette(int radius) {
+    Color[][] all = palettes;
+    if (radius < all.length && all[radius] != null) {
+      return all[radius];
+    }
+    Color[] p = new Color[radius + 2];
+    p[0] = Color.GRAY;
+    for (int d = 1; d <= radius; d++) {
+      p[d] = shadeColor(radius, d);
+    }
+    p[radius + 1] = Color.YELLOW;
+    Color[][] grown = java.util.Arrays.copyOf(all, Math.max(all.length, 2 * radius + 1));
+    grown[radius] = p;
+    palettes = grown;
+    return p;
+  }
+
+  // the color of a powered wire the given distance from the edge of the given radius
+  static Color shadeColor(int radius, int distance) {
+    return new Color(255 - ((radius - distance) * 50 / radius),
+        255 - ((radius - distance) * 200 / radius), 100);
+  }
+
+  // is this cache for tiles of the given size and power radius
+  boolean matches(int size, int radius) {
+    return this.size == size && this.radius == radius;
+  }
+
+  // the palette index of the given game piece's wire color
+  int shade(GamePiece g) {
+    if (g.powerStation) {
+      return this.radius + 1;
+    }
+    else if (g.isPowered && g.distance > 0 && g.distance <= this.radius) {
+      return g.distance;
+    }
+    else {
+      return 0;
+    }
+  }
+
+  // the shared image of a tile with the given mask and palette index
+  WorldImage tile(int mask, int shade) {
+    int key = shade * 32 + mask;
+    if (this.tiles[key] == null) {
+      GamePiece model = new GamePiece(0, 0, (mask & PackedBoard.LEFT) != 0,
+          (mask & PackedBoard.RIGHT) != 0, (mask & PackedBoard.TOP) != 0,
+          (mask & PackedBoard.BOTTOM) != 0, (mask & PackedBoard.STATION) != 0, false);
+      model.size = this.size;
+      model.color = this.palette[shade];
+      this.tiles[key] = model.drawTile();
+    }
+    return this.tiles[key];
+  }
+}
@@ -0,0 +1,45 @@
+import java.util.SplittableRandom;
+
+// Wilson's algorithm, which picks every spanning tree with equal probability
+// by joining loop-erased random walks onto the tree
+class WilsonGenerator extends ABoardGenerator {
+  public String name() {
+    return "wilson";
+  }
+
+  void layout(PackedBoard board, SplittableRandom rand) {
+    boolean[] inTree = new boolean[board.size()];
+    // the direction the current walk last left each cell in
+    byte[] next = new byte[board.size()];
+    inTree[0] = true;
+
+    for (int start = 1; start < board.size(); start++) {
+      // walk until the tree is hit, overwriting the exit of any cell
+      // visited again, which erases the loop
+      int i = start;
+      while (!inTree[i]) {
+        int dir = this.randomDirection(board, i, rand);
+        next[i] = (byte) dir;
+        i = board.neighbor(i, dir);
+      }
+
+      // then add the loop-free path to the tree
+      i = start;
+      while (!inTree[i]) {
+        inTree[i] = true;
+        join(board, i, next[i]);
+        i = board.neighbor(i, next[i]);
+      }
+    }
+  }
+
+  // a random direction from the cell at the given index that stays on the board
+  int randomDirection(PackedBoard board, int i, SplittableRandom rand) {
+    while (true) {
+      int dir = PowerField.DIRS[rand.nextInt(4)];
+      if (board.neighbor(i, dir) >= 0) {
+        return dir;
+      }
+    }
+  }
+}
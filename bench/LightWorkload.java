@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import javalib.worldimages.Posn;
+import lightemall.bench.Workload;
+
+// the steps of the game the benchmarks in bench/lightemall/bench time, on a solved
+// board so every cell is powered and the power station has somewhere to go
+class LightWorkload implements Workload {
+  LightEmAll game;
+  // a generator of its own, so the edges can be timed apart from laying out a board
+  KruskalGenerator kruskal;
+  SplittableRandom rand;
+  int size;
+  // the cell clicked last, taken in turn
+  int next;
+  // the keys that move the power station away from its corner and back, and which
+  // one is pressed next
+  String[] keys;
+  int key;
+  // the cell farthest from the power station
+  GamePiece far;
+
+  public void setUp(int size, long seed) {
+    this.size = size;
+    this.game = new LightEmAll(size, size, seed);
+    this.rand = new SplittableRandom(seed);
+    this.kruskal = new KruskalGenerator();
+    this.kruskal.getAllEdges(size, size, this.rand);
+    int station = this.game.engine.power.station;
+    this.keys = this.game.engine.cells.connectRight(station)
+        ? new String[] {"right", "left"} : new String[] {"down", "up"};
+    int farthest = 0;
+    for (int i = 0; i < this.game.engine.cells.size(); i++) {
+      if (this.game.engine.power.hops[i] > this.game.engine.power.hops[farthest]) {
+        farthest = i;
+      }
+    }
+    this.far = this.game.pieceAt(farthest);
+    this.game.makeScene();
+  }
+
+  public Object getAllEdges() {
+    this.kruskal.getAllEdges(this.size, this.size, this.rand);
+    return this.kruskal.edgesInGraph;
+  }
+
+  public Object randomizeEdges() {
+    this.kruskal.randomizeEdges(this.rand);
+    return this.kruskal.edgesInGraph;
+  }
+
+  public Object sortEdges() {
+    this.kruskal.sortEdges();
+    return this.kruskal.edgesInGraph.ids;
+  }
+
+  public Object kruskalMST() {
+    this.kruskal.kruskalMST();
+    return this.kruskal.mst;
+  }
+
+  public Object changeWires() {
+    this.game.changeWires();
+    return this.game.board;
+  }
+
+  public Object initNeighbors() {
+    this.game.initNeighbors();
+    return this.game.board;
+  }
+
+  public Object setDefaults() {
+    this.game.setDefaults();
+    return this.game.engine.power.hops;
+  }
+
+  public boolean hasPower() {
+    return this.game.hasPower(this.far, new ArrayList<GamePiece>());
+  }
+
+  public Object click() {
+    this.next = (this.next + 1) % this.game.engine.cells.size();
+    int col = this.game.engine.cells.col(this.next);
+    int row = this.game.engine.cells.row(this.next);
+    this.game.onMouseClicked(new Posn(40 * col + 20, 40 * row + 60), "LeftButton");
+    return this.game.engine.power.hops;
+  }
+
+  public Object key() {
+    this.game.onKeyEvent(this.keys[this.key]);
+    this.key = 1 - this.key;
+    return this.game.engine.power.hops;
+  }
+
+  public Object makeScene() {
+    this.next = (this.next + 1) % this.game.engine.cells.size();
+    this.game.scene.mark(this.next);
+    return this.game.makeScene();
+  }
+
+  public Object redrawScene() {
+    this.game.scene.scene = null;
+    return this.game.makeScene();
+  }
+}
@@ -0,0 +1,94 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// the average time of each step of laying out, playing and drawing a game, on square
+// boards from 8 to 2048 cells a side; run with -prof gc for the bytes each one
+// allocates
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Xss16m", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class GameBenchmark {
+  @Param({"8", "32", "128", "512", "2048"})
+  int size;
+
+  Workload game;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ReflectiveOperationException {
+    this.game = Workloads.create();
+    this.game.setUp(this.size, 1L);
+  }
+
+  @Benchmark
+  public Object getAllEdges() {
+    return this.game.getAllEdges();
+  }
+
+  @Benchmark
+  public Object randomizeEdges() {
+    return this.game.randomizeEdges();
+  }
+
+  // the edges are counted into place, so sorting them again costs as much as the first
+  // time and no fresh weights are needed between calls
+  @Benchmark
+  public Object sortEdges() {
+    return this.game.sortEdges();
+  }
+
+  @Benchmark
+  public Object kruskalMST() {
+    return this.game.kruskalMST();
+  }
+
+  @Benchmark
+  public Object changeWires() {
+    return this.game.changeWires();
+  }
+
+  @Benchmark
+  public Object initNeighbors() {
+    return this.game.initNeighbors();
+  }
+
+  @Benchmark
+  public Object setDefaults() {
+    return this.game.setDefaults();
+  }
+
+  @Benchmark
+  public Object onMouseClicked() {
+    return this.game.click();
+  }
+
+  @Benchmark
+  public Object onKeyEvent() {
+    return this.game.key();
+  }
+
+  @Benchmark
+  public Object makeScene() {
+    return this.game.makeScene();
+  }
+
+  @Benchmark
+  public Object makeSceneFromScratch() {
+    return this.game.redrawScene();
+  }
+}
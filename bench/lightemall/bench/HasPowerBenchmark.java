@@ -0,0 +1,42 @@
+package lightemall.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// the average time of asking whether one cell has power by searching the pieces for a
+// path to the power station; the search recurses once per piece and looks each one up
+// in a list, so it takes time in the square of the cells and stops at 64 a side
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64m", "-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class HasPowerBenchmark {
+  @Param({"8", "16", "32", "64"})
+  int size;
+
+  Workload game;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ReflectiveOperationException {
+    this.game = Workloads.create();
+    this.game.setUp(this.size, 1L);
+  }
+
+  @Benchmark
+  public boolean hasPower() {
+    return this.game.hasPower();
+  }
+}
@@ -0,0 +1,46 @@
+package lightemall.bench;
+
+// the steps of the game the benchmarks time, each done once on a board set up
+// beforehand; the game itself is in the default package, which JMH cannot generate
+// code against, so it is reached through this interface, which the JIT inlines
+// since only one class ever implements it
+public interface Workload {
+  // sets up a board of the given size laid out from the given seed
+  void setUp(int size, long seed);
+
+  // finds every edge of the board and gives each a random weight
+  Object getAllEdges();
+
+  // gives every edge a new random weight
+  Object randomizeEdges();
+
+  // sorts the edges by weight
+  Object sortEdges();
+
+  // finds the minimum spanning tree of the edges, sorting them first
+  Object kruskalMST();
+
+  // copies the wires of every cell onto its game piece
+  Object changeWires();
+
+  // finds the neighbors every game piece is wired to
+  Object initNeighbors();
+
+  // recomputes the power of every cell
+  Object setDefaults();
+
+  // asks whether the cell farthest from the power station has power
+  boolean hasPower();
+
+  // clicks the next cell
+  Object click();
+
+  // moves the power station one cell, back and forth
+  Object key();
+
+  // draws the next frame after one cell changed
+  Object makeScene();
+
+  // draws the next frame from scratch
+  Object redrawScene();
+}